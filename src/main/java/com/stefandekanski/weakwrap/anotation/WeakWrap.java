@@ -1,12 +0,0 @@
-package com.stefandekanski.weakwrap.anotation;
-
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
-
-@Retention(RetentionPolicy.CLASS)
-@Target({ElementType.TYPE})
-public @interface WeakWrap {
-    String classNamePrefix() default "WeakWrap";
-}
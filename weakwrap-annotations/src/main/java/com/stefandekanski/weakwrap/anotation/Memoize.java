@@ -0,0 +1,25 @@
+package com.stefandekanski.weakwrap.anotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a side effect free method of a {@link WeakWrap} type whose results the generated wrapper caches,
+ * keyed on the arguments. The cache belongs to the wrapper, holds at most {@link #maxSize()} results,
+ * is emptied by {@code invalidateMemoized()} and is dropped once the target is found collected.
+ * <p>
+ * Cached results are held strongly by the wrapper. A result that references the target, e.g. {@code this} or an
+ * inner class instance of it, keeps the target reachable for as long as the wrapper is, defeating the weak wrap.
+ * Only memoize methods whose results are independent of the target's identity.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.METHOD})
+public @interface Memoize {
+    /**
+     * Results kept at most, rounded up to a power of two as every cache is direct mapped, e.g. {@code 100} keeps up
+     * to 128 results. Keys mapping to the same slot evict each other before the cache is full.
+     */
+    int maxSize() default 16;
+}
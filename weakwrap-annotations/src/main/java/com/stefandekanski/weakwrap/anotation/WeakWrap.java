@@ -0,0 +1,67 @@
+package com.stefandekanski.weakwrap.anotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.TYPE})
+public @interface WeakWrap {
+    String classNamePrefix() default "WeakWrap";
+
+    /**
+     * Only for Subscriber shaped types ({@code onSubscribe}, {@code onNext}, {@code onError}, {@code onComplete}).
+     * The wrapper always cancels the subscription once the target is collected. When positive, the wrapper also
+     * requests demand in batches of this size and replenishes it as items are delivered, so the wrapped
+     * subscriber must not call {@code request} itself. {@code 0} leaves demand to the wrapped subscriber.
+     */
+    long requestBatchSize() default 0;
+
+    /**
+     * All wrappers of the same target share one canonical reference (see {@code WeakWrapReferences}),
+     * so reference processing scales with the number of targets instead of the number of wrappers.
+     * {@code clearWeakWrapRef()} then detaches only the wrapper it is called on.
+     * <p>
+     * Pays off when several wrappers point at the same target. With one short lived wrapper per target it
+     * costs more than a plain reference, because the shared table keeps every reference reachable until the
+     * collector clears it, so it always gets discovered. Compare both with {@code weakwrap-loadtest}.
+     */
+    boolean sharedReference() default false;
+
+    /**
+     * Adds {@code attach(T)} to the wrapper. While the wrapper has no target (collected or cleared), it records the
+     * last call of every void method (see {@code WeakWrapReplay}) and replays them, in call order, to the next
+     * attached target. Methods with results or checked exceptions still return defaults while detached.
+     * Attach on the thread that calls the wrapper, calls racing with {@code attach} may overtake replayed ones.
+     */
+    boolean reattachable() default false;
+
+    /**
+     * Reports wrapper creation, the first call that finds the target gone, every dropped call and delegated calls
+     * slower than a threshold through {@code WeakWrapEvents}. Add {@code weakwrap-jfr} to record them as Java Flight
+     * Recorder events, each event checks {@code isEnabled()} first so they cost next to nothing while not recording.
+     */
+    boolean flightRecorderEvents() default false;
+
+    /**
+     * Replaces the constructor with {@code (T, WeakWrapScope)}. Invalidating or closing the scope makes every wrapper
+     * created in it inert at once (see {@code WeakWrapScope}), without tracking the wrappers. Calls then take the
+     * same path as calls after {@code clearWeakWrapRef()}. Can not be combined with {@link #reattachable()}.
+     */
+    boolean scoped() default false;
+
+    /**
+     * Latches the first call that finds the target gone, every later call skips {@code Reference.get()} (and its GC
+     * barriers) and goes straight to the default result. Also adds {@code isTargetAlive()} and {@code wraps(T)},
+     * which use {@code Reference.refersTo} when compiling for Java 16 or newer, so they never reach the target strongly.
+     */
+    boolean deadTargetLatch() default false;
+
+    /**
+     * Makes the wrapper reusable for another target: adds a no-argument constructor, {@code rebind(T)} and
+     * {@code release()} (see {@code WeakWrapPool.Rebindable}), for pooling with {@code WeakWrapPool}. A released
+     * wrapper behaves like a cleared one. Can not be combined with {@link #reattachable()} or {@link #scoped()}.
+     */
+    boolean rebindable() default false;
+}
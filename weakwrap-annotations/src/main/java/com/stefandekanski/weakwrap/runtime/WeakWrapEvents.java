@@ -0,0 +1,95 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Lifecycle events of wrappers generated with {@code @WeakWrap(flightRecorderEvents = true)}.
+ * <p>
+ * Generated code only talks to this class, so it compiles for any target. The events go to the first
+ * {@link Sink} found through {@link ServiceLoader}; {@code weakwrap-jfr} provides one that emits
+ * Java Flight Recorder events. Without a sink every call is a no-op.
+ */
+public final class WeakWrapEvents {
+
+    /**
+     * Receives wrapper events. Implementations check whether their event is enabled before doing any work.
+     */
+    public interface Sink {
+        void created(Class<?> wrapperType);
+
+        void targetCollected(Class<?> wrapperType);
+
+        void droppedCall(Class<?> wrapperType, String method);
+
+        /**
+         * Starts timing a delegated call, returns {@code null} when slow calls are not recorded.
+         */
+        Object beginCall();
+
+        void endCall(Object call, Class<?> wrapperType, String method);
+    }
+
+    private static final Sink SINK = loadSink();
+
+    private WeakWrapEvents() {
+    }
+
+    public static void created(Class<?> wrapperType) {
+        SINK.created(wrapperType);
+    }
+
+    public static void targetCollected(Class<?> wrapperType) {
+        SINK.targetCollected(wrapperType);
+    }
+
+    public static void droppedCall(Class<?> wrapperType, String method) {
+        SINK.droppedCall(wrapperType, method);
+    }
+
+    public static Object beginCall() {
+        return SINK.beginCall();
+    }
+
+    public static void endCall(Object call, Class<?> wrapperType, String method) {
+        if (call != null) {
+            SINK.endCall(call, wrapperType, method);
+        }
+    }
+
+    private static Sink loadSink() {
+        try {
+            Iterator<Sink> sinks = ServiceLoader.load(Sink.class, WeakWrapEvents.class.getClassLoader()).iterator();
+            if (sinks.hasNext()) {
+                return sinks.next();
+            }
+        } catch (ServiceConfigurationError | LinkageError e) {
+            //a sink that cannot run on this VM, e.g. weakwrap-jfr without jdk.jfr
+        }
+        return new NoOpSink();
+    }
+
+    private static final class NoOpSink implements Sink {
+        @Override
+        public void created(Class<?> wrapperType) {
+        }
+
+        @Override
+        public void targetCollected(Class<?> wrapperType) {
+        }
+
+        @Override
+        public void droppedCall(Class<?> wrapperType, String method) {
+        }
+
+        @Override
+        public Object beginCall() {
+            return null;
+        }
+
+        @Override
+        public void endCall(Object call, Class<?> wrapperType, String method) {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits {@link WeakWrapTask}s to a {@link ThreadPoolExecutor} so that they are cancelled and removed from its
+ * queue once their target is collected. Scheduling needs a {@link ScheduledThreadPoolExecutor}. Other tasks are
+ * passed through unchanged.
+ * <p>
+ * {@link #execute(Runnable)} keeps the {@link Executor} contract for tasks: what a task throws reaches the worker
+ * thread's uncaught exception handler, while the futures returned by {@code submit} and {@code schedule*} hold it.
+ * A {@link ScheduledThreadPoolExecutor} keeps its worker alive and only hands the failure to that handler,
+ * {@link ThreadPoolExecutor#afterExecute} does not see it there.
+ */
+public final class WeakWrapExecutor implements Executor {
+    private final ThreadPoolExecutor executor;
+
+    public WeakWrapExecutor(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof WeakWrapTask) {
+            WeakWrapTask<?> task = (WeakWrapTask<?>) command;
+            FutureTask<?> future = new RethrowingFutureTask(task, executor instanceof ScheduledThreadPoolExecutor);
+            //bound first, a target collected before the task is queued still cancels it
+            task.bind(future, executor);
+            executor.execute(future);
+        } else {
+            executor.execute(command);
+        }
+    }
+
+    public Future<?> submit(WeakWrapTask<?> task) {
+        Future<?> future = executor.submit(task);
+        task.bind(future, executor);
+        return future;
+    }
+
+    public ScheduledFuture<?> schedule(WeakWrapTask<?> task, long delay, TimeUnit unit) {
+        ScheduledFuture<?> future = scheduledExecutor().schedule(task, delay, unit);
+        task.bind(future, executor);
+        return future;
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(WeakWrapTask<?> task, long initialDelay, long period, TimeUnit unit) {
+        ScheduledFuture<?> future = scheduledExecutor().scheduleAtFixedRate(task, initialDelay, period, unit);
+        task.bind(future, executor);
+        return future;
+    }
+
+    public ScheduledFuture<?> scheduleWithFixedDelay(WeakWrapTask<?> task, long initialDelay, long delay, TimeUnit unit) {
+        ScheduledFuture<?> future = scheduledExecutor().scheduleWithFixedDelay(task, initialDelay, delay, unit);
+        task.bind(future, executor);
+        return future;
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    //a future nobody reads, rethrows what the task threw like a task passed to execute would. A scheduled executor
+    //runs it inside its own future, which would hold the failure, so there it goes to the handler directly
+    private static final class RethrowingFutureTask extends FutureTask<Void> {
+        private final boolean scheduled;
+
+        RethrowingFutureTask(Runnable task, boolean scheduled) {
+            super(task, null);
+            this.scheduled = scheduled;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (scheduled) {
+                    Thread worker = Thread.currentThread();
+                    worker.getUncaughtExceptionHandler().uncaughtException(worker, cause);
+                    return;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                //a checked exception thrown sneakily
+                throw new UndeclaredThrowableException(cause);
+            }
+        }
+    }
+
+    private ScheduledThreadPoolExecutor scheduledExecutor() {
+        if (!(executor instanceof ScheduledThreadPoolExecutor)) {
+            throw new UnsupportedOperationException("Scheduling needs a ScheduledThreadPoolExecutor, got " + executor.getClass().getName());
+        }
+        return (ScheduledThreadPoolExecutor) executor;
+    }
+}
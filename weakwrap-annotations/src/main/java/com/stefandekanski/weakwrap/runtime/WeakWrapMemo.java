@@ -0,0 +1,206 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Bounded result caches for {@code @Memoize} methods of generated wrappers.
+ * <p>
+ * Every cache is direct mapped: a key has exactly one slot and a new result evicts whatever was there,
+ * so the size never exceeds the slot count, {@code maxSize} rounded up to a power of two. Lookups with no
+ * argument or one primitive or object argument do not allocate, several arguments (or an array) are combined
+ * into one {@link #key(Object...)} per call, boxing primitive arguments. Slots hold immutable entries, which
+ * keeps the caches safe for wrappers called from several threads. Lookups return {@link #MISS} when nothing
+ * is cached, as {@code null} is a valid result.
+ */
+public final class WeakWrapMemo {
+    public static final Object MISS = new Object();
+    private static final int MAX_SLOT_COUNT = 1 << 30;
+
+    private WeakWrapMemo() {
+    }
+
+    /**
+     * Key for methods with several parameters (or an array parameter), compares arguments deeply.
+     */
+    public static Object key(Object... arguments) {
+        return new Key(arguments);
+    }
+
+    static int slotCount(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (maxSize > MAX_SLOT_COUNT) {
+            return MAX_SLOT_COUNT;
+        }
+        return maxSize == 1 ? 1 : Integer.highestOneBit(maxSize - 1) << 1;
+    }
+
+    static int spread(int hash) {
+        hash ^= hash >>> 16;
+        return hash * 0x45d9f3b;
+    }
+
+    /**
+     * Cache of a method without parameters.
+     */
+    public static final class Single {
+        private volatile Object value = MISS;
+
+        public Object get() {
+            return value;
+        }
+
+        public void put(Object value) {
+            this.value = value;
+        }
+
+        public void clear() {
+            value = MISS;
+        }
+    }
+
+    /**
+     * Cache of a method with one {@code int} (or {@code short}, {@code char}, {@code byte}) parameter.
+     */
+    public static final class IntKeyed {
+        private final IntEntry[] slots;
+        private volatile boolean filled;
+
+        public IntKeyed(int maxSize) {
+            slots = new IntEntry[slotCount(maxSize)];
+        }
+
+        public Object get(int key) {
+            IntEntry entry = slots[spread(key) & (slots.length - 1)];
+            return entry != null && entry.key == key ? entry.value : MISS;
+        }
+
+        public void put(int key, Object value) {
+            slots[spread(key) & (slots.length - 1)] = new IntEntry(key, value);
+            filled = true;
+        }
+
+        public void clear() {
+            if (filled) {
+                filled = false;
+                Arrays.fill(slots, null);
+            }
+        }
+    }
+
+    /**
+     * Cache of a method with one {@code long} parameter.
+     */
+    public static final class LongKeyed {
+        private final LongEntry[] slots;
+        private volatile boolean filled;
+
+        public LongKeyed(int maxSize) {
+            slots = new LongEntry[slotCount(maxSize)];
+        }
+
+        public Object get(long key) {
+            LongEntry entry = slots[spread((int) (key ^ (key >>> 32))) & (slots.length - 1)];
+            return entry != null && entry.key == key ? entry.value : MISS;
+        }
+
+        public void put(long key, Object value) {
+            slots[spread((int) (key ^ (key >>> 32))) & (slots.length - 1)] = new LongEntry(key, value);
+            filled = true;
+        }
+
+        public void clear() {
+            if (filled) {
+                filled = false;
+                Arrays.fill(slots, null);
+            }
+        }
+    }
+
+    /**
+     * Cache keyed on one object argument or on {@link #key(Object...)}, using {@code equals}.
+     */
+    public static final class Keyed {
+        private final ObjectEntry[] slots;
+        private volatile boolean filled;
+
+        public Keyed(int maxSize) {
+            slots = new ObjectEntry[slotCount(maxSize)];
+        }
+
+        public Object get(Object key) {
+            ObjectEntry entry = slots[spread(hash(key)) & (slots.length - 1)];
+            if (entry != null && (entry.key == key || (key != null && key.equals(entry.key)))) {
+                return entry.value;
+            }
+            return MISS;
+        }
+
+        public void put(Object key, Object value) {
+            slots[spread(hash(key)) & (slots.length - 1)] = new ObjectEntry(key, value);
+            filled = true;
+        }
+
+        public void clear() {
+            if (filled) {
+                filled = false;
+                Arrays.fill(slots, null);
+            }
+        }
+
+        private static int hash(Object key) {
+            return key == null ? 0 : key.hashCode();
+        }
+    }
+
+    private static final class IntEntry {
+        final int key;
+        final Object value;
+
+        IntEntry(int key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class LongEntry {
+        final long key;
+        final Object value;
+
+        LongEntry(long key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class ObjectEntry {
+        final Object key;
+        final Object value;
+
+        ObjectEntry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Key {
+        private final Object[] arguments;
+        private final int hash;
+
+        Key(Object[] arguments) {
+            this.arguments = arguments;
+            this.hash = Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && hash == ((Key) other).hash && Arrays.deepEquals(arguments, ((Key) other).arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
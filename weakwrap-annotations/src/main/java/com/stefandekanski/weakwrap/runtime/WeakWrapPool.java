@@ -0,0 +1,102 @@
+package com.stefandekanski.weakwrap.runtime;
+
+/**
+ * Bounded pool of wrappers generated with {@code @WeakWrap(rebindable = true)}, for callbacks that are wrapped and
+ * dropped at a high rate. Every thread has its own stripe of at most {@code maxPerThread} wrappers, so acquiring
+ * and releasing never contend. Reusing a wrapper saves the wrapper allocation, {@link Rebindable#rebind(Object)}
+ * still creates one reference object per target because a reference can not be pointed at another referent.
+ * <p>
+ * Safety rules, a pooled wrapper is handed to the next caller of {@link #acquire(Object)}:
+ * <ul>
+ * <li>Release only wrappers that nothing else holds anymore, e.g. after the call they were registered for is done.
+ * A wrapper still registered somewhere would start calling the next target it is bound to.</li>
+ * <li>A released wrapper behaves like a cleared one until it is acquired again, it never reaches its old target.</li>
+ * <li>Releasing twice is harmless, only the first release returns the wrapper to the pool.</li>
+ * </ul>
+ */
+public final class WeakWrapPool<T, W extends WeakWrapPool.Rebindable<T>> {
+
+    /**
+     * Implemented by wrappers generated with {@code @WeakWrap(rebindable = true)}.
+     */
+    public interface Rebindable<T> {
+        /**
+         * Points the wrapper at {@code target}, dropping cached state of the previous one.
+         */
+        void rebind(T target);
+
+        /**
+         * Detaches the wrapper from its target, returns {@code false} when it was released already.
+         */
+        boolean release();
+    }
+
+    public interface Factory<W> {
+        W create();
+    }
+
+    private final Factory<W> factory;
+    private final int maxPerThread;
+    private final ThreadLocal<Stripe> stripes = new ThreadLocal<Stripe>() {
+        @Override
+        protected Stripe initialValue() {
+            return new Stripe(maxPerThread);
+        }
+    };
+
+    public WeakWrapPool(Factory<W> factory, int maxPerThread) {
+        if (maxPerThread < 1) {
+            throw new IllegalArgumentException("maxPerThread must be positive: " + maxPerThread);
+        }
+        this.factory = factory;
+        this.maxPerThread = maxPerThread;
+    }
+
+    /**
+     * Returns a pooled wrapper of this thread, or a new one when there is none, bound to {@code target}.
+     */
+    @SuppressWarnings("unchecked")
+    public W acquire(T target) {
+        Object pooled = stripes.get().pop();
+        W wrapper = pooled != null ? (W) pooled : factory.create();
+        wrapper.rebind(target);
+        return wrapper;
+    }
+
+    /**
+     * Releases {@code wrapper} and keeps it for reuse by this thread, unless the stripe is full.
+     */
+    public void release(W wrapper) {
+        if (wrapper.release()) {
+            stripes.get().push(wrapper);
+        }
+    }
+
+    int pooledOnThisThread() {
+        return stripes.get().size;
+    }
+
+    private static final class Stripe {
+        private final Object[] wrappers;
+        private int size;
+
+        Stripe(int capacity) {
+            wrappers = new Object[capacity];
+        }
+
+        Object pop() {
+            if (size == 0) {
+                return null;
+            }
+            Object wrapper = wrappers[--size];
+            wrappers[size] = null;
+            return wrapper;
+        }
+
+        void push(Object wrapper) {
+            if (size < wrappers.length) {
+                wrappers[size++] = wrapper;
+            }
+        }
+    }
+}
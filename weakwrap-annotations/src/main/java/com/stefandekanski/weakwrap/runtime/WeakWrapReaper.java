@@ -0,0 +1,106 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * One daemon thread, shared by everything that has to act as soon as a target is collected: Subscriber shaped
+ * wrappers cancelling their subscription, {@link WeakWrapTask}s cancelling their future and {@code weakwrap-async}
+ * stopping abandoned work.
+ * <p>
+ * The thread is started by the first {@link WeakTarget} created, code that never creates one never starts it.
+ * It runs with no context class loader, so it does not pin the class loader of the application that started it.
+ */
+public final class WeakWrapReaper {
+
+    /**
+     * Weak reference whose {@link #onCollected()} runs on the reaper thread once its referent is collected.
+     * The reference itself has to stay reachable until then, e.g. from the wrapper or task holding it.
+     */
+    public abstract static class WeakTarget<T> extends WeakReference<T> {
+        protected WeakTarget(T referent) {
+            super(referent, Reaper.COLLECTED_TARGETS);
+        }
+
+        /**
+         * Called once on the reaper thread. Keep it short and do not block, every collected target waits for it.
+         */
+        protected abstract void onCollected();
+    }
+
+    private WeakWrapReaper() {
+    }
+
+    /**
+     * Runs {@code action} on the reaper thread once the current batch of collected targets is done, at most once per
+     * batch for equal actions. Only called from {@link WeakTarget#onCollected()}, e.g. to purge an executor once for
+     * all of its cancelled tasks.
+     */
+    public static void afterBatch(Runnable action) {
+        Reaper reaper = Reaper.current();
+        if (reaper == null) {
+            throw new IllegalStateException("afterBatch is only supported from onCollected");
+        }
+        reaper.afterBatch.add(action);
+    }
+
+    //started on first use of COLLECTED_TARGETS, i.e. when the first WeakTarget is created
+    private static final class Reaper extends Thread {
+        static final ReferenceQueue<Object> COLLECTED_TARGETS = new ReferenceQueue<>();
+        private static final Reaper INSTANCE = new Reaper();
+
+        static {
+            INSTANCE.start();
+        }
+
+        private final Set<Runnable> afterBatch = new LinkedHashSet<>();
+
+        private Reaper() {
+            super("weakwrap-reaper");
+            setDaemon(true);
+            setContextClassLoader(null);
+        }
+
+        static Reaper current() {
+            Thread thread = Thread.currentThread();
+            return thread == INSTANCE ? INSTANCE : null;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    Reference<?> collected = COLLECTED_TARGETS.remove();
+                    do {
+                        collected(collected);
+                    } while ((collected = COLLECTED_TARGETS.poll()) != null);
+                    for (Runnable action : afterBatch) {
+                        run(action);
+                    }
+                    afterBatch.clear();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private static void collected(Reference<?> collected) {
+            try {
+                ((WeakTarget<?>) collected).onCollected();
+            } catch (Throwable e) {
+                //a failing callback must not stop the others, the reaper thread is shared
+            }
+        }
+
+        private static void run(Runnable action) {
+            try {
+                action.run();
+            } catch (Throwable e) {
+                //a failing callback must not stop the others, the reaper thread is shared
+            }
+        }
+    }
+}
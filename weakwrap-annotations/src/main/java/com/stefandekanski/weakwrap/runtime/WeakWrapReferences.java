@@ -0,0 +1,142 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Canonical {@link WeakReference} per target, used by wrappers generated with
+ * {@code @WeakWrap(sharedReference = true)}.
+ * <p>
+ * All wrappers of the same target share one reference, so the collector discovers and processes one
+ * reference per target instead of one per wrapper. Targets are matched by identity. The table holds
+ * nothing but the shared references themselves and drops them once they are cleared by the collector.
+ */
+public final class WeakWrapReferences {
+    private static final int SEGMENT_COUNT = 16;
+    private static final Segment[] SEGMENTS = new Segment[SEGMENT_COUNT];
+
+    static {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            SEGMENTS[i] = new Segment();
+        }
+    }
+
+    private static final WeakReference<Object> CLEARED = new WeakReference<>(null);
+
+    private WeakWrapReferences() {
+    }
+
+    /**
+     * Returns the reference shared by every wrapper of {@code target}, creating it on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> WeakReference<T> shared(T target) {
+        if (target == null) {
+            return cleared();
+        }
+        int hash = spread(System.identityHashCode(target));
+        return (WeakReference<T>) segmentFor(hash).shared(target, hash);
+    }
+
+    /**
+     * Returns an always cleared reference. Wrappers switch to it instead of clearing the shared
+     * reference, which would detach every other wrapper of the same target.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> WeakReference<T> cleared() {
+        return (WeakReference<T>) CLEARED;
+    }
+
+    static int size() {
+        int size = 0;
+        for (Segment segment : SEGMENTS) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private static Segment segmentFor(int hash) {
+        return SEGMENTS[(hash >>> 16) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 7) ^ (hash >>> 13);
+    }
+
+    private static final class SharedReference extends WeakReference<Object> {
+        final int hash;
+        SharedReference next;
+
+        SharedReference(Object referent, int hash, ReferenceQueue<Object> queue, SharedReference next) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment {
+        private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+        private SharedReference[] table = new SharedReference[16];
+        private int size;
+
+        synchronized WeakReference<Object> shared(Object target, int hash) {
+            expungeCollected();
+            int index = hash & (table.length - 1);
+            for (SharedReference ref = table[index]; ref != null; ref = ref.next) {
+                if (ref.hash == hash && ref.get() == target) {
+                    return ref;
+                }
+            }
+            SharedReference ref = new SharedReference(target, hash, collected, table[index]);
+            table[index] = ref;
+            if (++size > table.length - (table.length >> 2)) {
+                resize();
+            }
+            return ref;
+        }
+
+        synchronized int size() {
+            expungeCollected();
+            return size;
+        }
+
+        private void expungeCollected() {
+            Reference<?> polled;
+            while ((polled = collected.poll()) != null) {
+                remove((SharedReference) polled);
+            }
+        }
+
+        private void remove(SharedReference stale) {
+            int index = stale.hash & (table.length - 1);
+            SharedReference previous = null;
+            for (SharedReference ref = table[index]; ref != null; previous = ref, ref = ref.next) {
+                if (ref == stale) {
+                    if (previous == null) {
+                        table[index] = ref.next;
+                    } else {
+                        previous.next = ref.next;
+                    }
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        private void resize() {
+            SharedReference[] newTable = new SharedReference[table.length * 2];
+            for (SharedReference head : table) {
+                SharedReference ref = head;
+                while (ref != null) {
+                    SharedReference next = ref.next;
+                    int index = ref.hash & (newTable.length - 1);
+                    ref.next = newTable[index];
+                    newTable[index] = ref;
+                    ref = next;
+                }
+            }
+            table = newTable;
+        }
+    }
+}
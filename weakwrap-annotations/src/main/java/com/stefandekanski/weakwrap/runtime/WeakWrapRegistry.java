@@ -0,0 +1,345 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent map from a key, e.g. a session or view id, to the wrapper of a target, for routers that look up the
+ * wrapper on every message.
+ * <p>
+ * Targets are held weakly, an entry whose target is collected is removed through a {@link ReferenceQueue} on the
+ * next write or {@link #prune()}, so the registry does not fill up with dead entries as keys churn.
+ * {@link #get(Object)} takes no lock and allocates nothing. Writes lock one of the stripes the keys are spread over.
+ * <p>
+ * With a {@code maxSize} every stripe holds at most its share of entries, so with unevenly spread keys eviction
+ * starts before the registry holds {@code maxSize} entries. A full stripe evicts with CLOCK (second chance): a
+ * lookup only sets the referenced bit of its entry when it is clear, and the stripe's clock hand clears bits until
+ * it finds an entry that was not looked up since the hand last passed it. Eviction is approximately least recently
+ * used and takes constant amortised time.
+ */
+public final class WeakWrapRegistry<K, T, W> {
+
+    /**
+     * Creates the wrapper of a registered target, e.g. {@code new WeakWrapView(target)}.
+     */
+    public interface Factory<T, W> {
+        W wrap(T target);
+    }
+
+    private static final int DEFAULT_STRIPES = 16;
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private final Factory<T, W> factory;
+    private final ReferenceQueue<T> collectedTargets = new ReferenceQueue<>();
+    private final Stripe<K, T, W>[] stripes;
+    private final int stripeShift;
+    private final int maxPerStripe;
+
+    public WeakWrapRegistry(Factory<T, W> factory) {
+        this(factory, 0, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param maxSize at most this many entries, rounded up to a multiple of the stripe count, {@code 0} for no bound
+     */
+    public WeakWrapRegistry(Factory<T, W> factory, int maxSize) {
+        this(factory, maxSize, DEFAULT_STRIPES);
+    }
+
+    @SuppressWarnings("unchecked")
+    public WeakWrapRegistry(Factory<T, W> factory, int maxSize, int stripeCount) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("stripeCount must be a positive power of two: " + stripeCount);
+        }
+        this.factory = factory;
+        this.stripes = new Stripe[stripeCount];
+        this.maxPerStripe = maxSize == 0 ? 0 : (maxSize + stripeCount - 1) / stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(collectedTargets, maxPerStripe);
+        }
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * Returns the wrapper registered for {@code key}, or {@code null} when there is none or its target is collected.
+     */
+    public W get(K key) {
+        int hash = hash(key);
+        Stripe<K, T, W> stripe = stripeFor(hash);
+        Entry<K, T, W> entry = stripe.find(key, hash);
+        if (entry == null || entry.get() == null) {
+            return null;
+        }
+        //read before write, lookups of hot entries leave their cache line shared
+        if (maxPerStripe != 0 && !entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.wrapper;
+    }
+
+    /**
+     * Returns the wrapper of {@code target} under {@code key}. Keeps the registered wrapper when it wraps the same live
+     * target, otherwise wraps {@code target} and replaces the previous entry.
+     */
+    public W register(K key, T target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Nothing to register for " + key);
+        }
+        prune();
+        int hash = hash(key);
+        Stripe<K, T, W> stripe = stripeFor(hash);
+        synchronized (stripe) {
+            Entry<K, T, W> existing = stripe.find(key, hash);
+            if (existing != null && existing.get() == target) {
+                existing.referenced = true;
+                return existing.wrapper;
+            }
+            if (existing != null) {
+                stripe.remove(existing);
+            } else if (maxPerStripe != 0 && stripe.count >= maxPerStripe) {
+                stripe.remove(stripe.evictionCandidate());
+            }
+            Entry<K, T, W> entry = new Entry<>(key, hash, target, factory.wrap(target), collectedTargets);
+            stripe.add(entry);
+            return entry.wrapper;
+        }
+    }
+
+    /**
+     * Removes the entry of {@code key}, returns {@code false} when there was none.
+     */
+    public boolean remove(K key) {
+        prune();
+        int hash = hash(key);
+        Stripe<K, T, W> stripe = stripeFor(hash);
+        synchronized (stripe) {
+            Entry<K, T, W> existing = stripe.find(key, hash);
+            if (existing == null) {
+                return false;
+            }
+            stripe.remove(existing);
+            return true;
+        }
+    }
+
+    /**
+     * Removes the entries whose target was collected since the last write.
+     */
+    @SuppressWarnings("unchecked")
+    public void prune() {
+        Reference<? extends T> collected;
+        while ((collected = collectedTargets.poll()) != null) {
+            Entry<K, T, W> entry = (Entry<K, T, W>) collected;
+            Stripe<K, T, W> stripe = stripeFor(entry.hash);
+            synchronized (stripe) {
+                //a replaced or evicted entry is gone already
+                stripe.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Number of entries, including those whose target was collected but not pruned yet.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<K, T, W> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.count;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Stripe<K, T, W> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        prune();
+    }
+
+    private Stripe<K, T, W> stripeFor(int hash) {
+        //the stripe comes from the high bits, the bucket within the stripe from the low ones
+        return stripes[stripeShift == 32 ? 0 : hash >>> stripeShift];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        //spreads the bits of weak hash codes, as HashMap does
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private static final class Entry<K, T, W> extends WeakReference<T> {
+        final K key;
+        final int hash;
+        final W wrapper;
+        //changed only under the stripe lock, read without it
+        volatile Entry<K, T, W> next;
+        //set racily by lookups, cleared by the clock hand under the stripe lock
+        boolean referenced;
+        //position in the clock ring of a bounded stripe, changed only under the stripe lock
+        int slot;
+
+        Entry(K key, int hash, T target, W wrapper, ReferenceQueue<T> queue) {
+            super(target, queue);
+            this.key = key;
+            this.hash = hash;
+            this.wrapper = wrapper;
+        }
+    }
+
+    //buckets of entries chained through next, written under the stripe's monitor and read without it
+    private static final class Stripe<K, T, W> {
+        private final ReferenceQueue<T> collectedTargets;
+        volatile AtomicReferenceArray<Entry<K, T, W>> table = new AtomicReferenceArray<>(INITIAL_STRIPE_CAPACITY);
+        int count;
+        //the clock of a bounded stripe: every entry has a slot, removed entries push theirs on freeSlots
+        private final Entry<K, T, W>[] ring;
+        private final int[] freeSlots;
+        private int freeCount;
+        private int hand;
+
+        @SuppressWarnings("unchecked")
+        Stripe(ReferenceQueue<T> collectedTargets, int maxEntries) {
+            this.collectedTargets = collectedTargets;
+            this.ring = maxEntries == 0 ? null : new Entry[maxEntries];
+            this.freeSlots = maxEntries == 0 ? null : new int[maxEntries];
+            clearRing();
+        }
+
+        Entry<K, T, W> find(Object key, int hash) {
+            AtomicReferenceArray<Entry<K, T, W>> buckets = table;
+            Entry<K, T, W> entry = buckets.get(hash & (buckets.length() - 1));
+            while (entry != null) {
+                if (entry.hash == hash && key.equals(entry.key)) {
+                    return entry;
+                }
+                entry = entry.next;
+            }
+            return null;
+        }
+
+        void add(Entry<K, T, W> entry) {
+            if (count >= table.length() * 3 / 4) {
+                resize();
+            }
+            AtomicReferenceArray<Entry<K, T, W>> buckets = table;
+            int index = entry.hash & (buckets.length() - 1);
+            entry.next = buckets.get(index);
+            buckets.set(index, entry);
+            count++;
+            if (ring != null) {
+                entry.slot = freeSlots[--freeCount];
+                ring[entry.slot] = entry;
+            }
+        }
+
+        /**
+         * Unlinks {@code entry} if it is still in the table. Lookups walking past it keep following its next link.
+         */
+        void remove(Entry<K, T, W> entry) {
+            AtomicReferenceArray<Entry<K, T, W>> buckets = table;
+            int index = entry.hash & (buckets.length() - 1);
+            Entry<K, T, W> current = buckets.get(index);
+            if (current == entry) {
+                buckets.set(index, entry.next);
+                unlinked(entry);
+                return;
+            }
+            while (current != null) {
+                if (current.next == entry) {
+                    current.next = entry.next;
+                    unlinked(entry);
+                    return;
+                }
+                current = current.next;
+            }
+        }
+
+        private void unlinked(Entry<K, T, W> entry) {
+            count--;
+            freeSlot(entry);
+        }
+
+        private void freeSlot(Entry<K, T, W> entry) {
+            if (ring != null) {
+                ring[entry.slot] = null;
+                freeSlots[freeCount++] = entry.slot;
+            }
+        }
+
+        /**
+         * Advances the clock hand of a full bounded stripe to the first entry whose target is collected or that was
+         * not looked up since the hand last passed it, clearing the referenced bits on the way.
+         */
+        Entry<K, T, W> evictionCandidate() {
+            while (true) {
+                Entry<K, T, W> entry = ring[hand];
+                hand = hand + 1 == ring.length ? 0 : hand + 1;
+                if (entry.get() == null || !entry.referenced) {
+                    return entry;
+                }
+                entry.referenced = false;
+            }
+        }
+
+        /**
+         * Relinks the live entries into a new table. They are copied, not moved, so the old chains stay intact for
+         * lookups still walking them. The old entries stay registered with the reference queue: once their target
+         * is collected they are enqueued next to their copies, and {@link #remove(Entry)} ignores them as they are
+         * no longer in the table.
+         */
+        private void resize() {
+            AtomicReferenceArray<Entry<K, T, W>> old = table;
+            AtomicReferenceArray<Entry<K, T, W>> resized = new AtomicReferenceArray<>(old.length() * 2);
+            int live = 0;
+            for (int i = 0; i < old.length(); i++) {
+                for (Entry<K, T, W> entry = old.get(i); entry != null; entry = entry.next) {
+                    T target = entry.get();
+                    if (target == null) {
+                        freeSlot(entry);
+                        continue;
+                    }
+                    Entry<K, T, W> copy = new Entry<>(entry.key, entry.hash, target, entry.wrapper, collectedTargets);
+                    copy.referenced = entry.referenced;
+                    copy.slot = entry.slot;
+                    if (ring != null) {
+                        ring[copy.slot] = copy;
+                    }
+                    int index = copy.hash & (resized.length() - 1);
+                    copy.next = resized.get(index);
+                    resized.set(index, copy);
+                    live++;
+                }
+            }
+            count = live;
+            table = resized;
+        }
+
+        void clear() {
+            table = new AtomicReferenceArray<>(INITIAL_STRIPE_CAPACITY);
+            count = 0;
+            clearRing();
+        }
+
+        private void clearRing() {
+            if (ring == null) {
+                return;
+            }
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = null;
+                freeSlots[i] = i;
+            }
+            freeCount = ring.length;
+            hand = 0;
+        }
+    }
+}
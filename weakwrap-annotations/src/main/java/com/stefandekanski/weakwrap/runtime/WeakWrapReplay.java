@@ -0,0 +1,85 @@
+package com.stefandekanski.weakwrap.runtime;
+
+/**
+ * Calls missed by a re-attachable wrapper ({@code @WeakWrap(reattachable = true)}) while it had no target.
+ * <p>
+ * Keeps only the last call per method, so memory is bounded by the number of wrapped methods, and replays
+ * them in the order they were last made once a target is attached.
+ */
+public final class WeakWrapReplay<T> {
+
+    /**
+     * One recorded call, replayed against the next attached target.
+     */
+    public interface Call<T> {
+        void replay(T target);
+    }
+
+    private final Call<T>[] lastCalls;
+    private final long[] sequence;
+    private long nextSequence;
+    private int pending;
+
+    @SuppressWarnings("unchecked")
+    public WeakWrapReplay(int methodCount) {
+        this.lastCalls = new Call[methodCount];
+        this.sequence = new long[methodCount];
+    }
+
+    /**
+     * Records {@code call} as the last call of method {@code method}, replacing the previous one.
+     */
+    public synchronized void record(int method, Call<T> call) {
+        if (lastCalls[method] == null) {
+            pending++;
+        }
+        lastCalls[method] = call;
+        sequence[method] = nextSequence++;
+    }
+
+    /**
+     * Replays and forgets all recorded calls. Runs outside the lock, so calls made by the target
+     * while replaying are recorded or delivered normally.
+     */
+    public void replayTo(T target) {
+        Call<T>[] calls = drainInOrder();
+        for (Call<T> call : calls) {
+            call.replay(target);
+        }
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < lastCalls.length; i++) {
+            lastCalls[i] = null;
+        }
+        pending = 0;
+    }
+
+    public synchronized int pendingCalls() {
+        return pending;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized Call<T>[] drainInOrder() {
+        Call<T>[] calls = new Call[pending];
+        long[] order = new long[pending];
+        int count = 0;
+        for (int i = 0; i < lastCalls.length; i++) {
+            if (lastCalls[i] == null) {
+                continue;
+            }
+            //insertion sort by sequence, there is at most one call per method
+            int position = count++;
+            while (position > 0 && order[position - 1] > sequence[i]) {
+                order[position] = order[position - 1];
+                calls[position] = calls[position - 1];
+                position--;
+            }
+            order[position] = sequence[i];
+            calls[position] = lastCalls[i];
+            lastCalls[i] = null;
+        }
+        pending = 0;
+        return calls;
+    }
+}
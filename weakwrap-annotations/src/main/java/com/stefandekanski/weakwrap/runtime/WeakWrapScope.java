@@ -0,0 +1,39 @@
+package com.stefandekanski.weakwrap.runtime;
+
+/**
+ * Lifetime shared by wrappers generated with {@code @WeakWrap(scoped = true)}, e.g. one screen or one request.
+ * <p>
+ * Wrappers remember the epoch of their scope when they are created. {@link #invalidate()} (or {@link #close()},
+ * so a scope works with try-with-resources) moves the scope to the next epoch, which makes every wrapper created
+ * before inert at once: the scope keeps no list of its wrappers and invalidating costs the same for any number
+ * of them. Wrappers created afterwards belong to the new epoch, so a scope can be reused.
+ */
+public final class WeakWrapScope implements AutoCloseable {
+    private volatile int epoch;
+
+    /**
+     * The epoch new wrappers are created in.
+     */
+    public int epoch() {
+        return epoch;
+    }
+
+    /**
+     * Whether wrappers created in {@code epoch} are still alive.
+     */
+    public boolean isActive(int epoch) {
+        return this.epoch == epoch;
+    }
+
+    /**
+     * Makes every wrapper created in this scope so far inert, as if {@code clearWeakWrapRef()} was called on each of them.
+     */
+    public synchronized void invalidate() {
+        epoch++;
+    }
+
+    @Override
+    public void close() {
+        invalidate();
+    }
+}
@@ -0,0 +1,102 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Task that only makes sense while its target is alive. Holds the target weakly, runs {@link #run(Object)}
+ * while it is reachable and does nothing once it is collected.
+ * <p>
+ * Submitted through a {@link WeakWrapExecutor}, the task is cancelled and purged from the executor's queue as
+ * soon as the collector clears its target, the same way Subscriber shaped wrappers cancel their subscription.
+ * That is done by the {@link WeakWrapReaper} thread, started by the first submission. A periodic task whose target
+ * is gone cancels itself on its next run at the latest.
+ * <p>
+ * The target is any object the task works on, not an annotated interface, so there is no generated wrapper to
+ * delegate through; the task keeps its own reference the way generated wrappers do.
+ */
+public abstract class WeakWrapTask<T> implements Runnable {
+    //replaced by a TargetReference once submitted, so a task that is only run directly never starts the reaper
+    private volatile WeakReference<T> target;
+
+    protected WeakWrapTask(T target) {
+        this.target = new WeakReference<>(target);
+    }
+
+    @Override
+    public final void run() {
+        WeakReference<T> reference = target;
+        T original = reference.get();
+        if (original == null) {
+            if (reference instanceof TargetReference) {
+                ((TargetReference<T>) reference).cancel();
+            }
+            return;
+        }
+        run(original);
+    }
+
+    protected abstract void run(T target);
+
+    public boolean isTargetAlive() {
+        return target.get() != null;
+    }
+
+    void bind(Future<?> future, ThreadPoolExecutor executor) {
+        T original = target.get();
+        if (original == null) {
+            //collected before the future was known
+            future.cancel(false);
+            executor.purge();
+            return;
+        }
+        target = new TargetReference<>(original, future, executor);
+    }
+
+    private static final class TargetReference<T> extends WeakWrapReaper.WeakTarget<T> {
+        private final Future<?> future;
+        private final ThreadPoolExecutor executor;
+
+        TargetReference(T referent, Future<?> future, ThreadPoolExecutor executor) {
+            super(referent);
+            this.future = future;
+            this.executor = executor;
+        }
+
+        void cancel() {
+            future.cancel(false);
+        }
+
+        //cancelled futures stay queued until purged, purge every executor once per batch of collected targets
+        @Override
+        protected void onCollected() {
+            if (future.cancel(false)) {
+                WeakWrapReaper.afterBatch(new Purge(executor));
+            }
+        }
+    }
+
+    private static final class Purge implements Runnable {
+        private final ThreadPoolExecutor executor;
+
+        Purge(ThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            executor.purge();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Purge && ((Purge) o).executor == executor;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(executor);
+        }
+    }
+}
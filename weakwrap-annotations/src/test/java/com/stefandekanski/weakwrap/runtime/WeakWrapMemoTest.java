@@ -0,0 +1,82 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapMemoTest {
+
+    @Test
+    public void testSingle() {
+        WeakWrapMemo.Single memo = new WeakWrapMemo.Single();
+        assertThat(memo.get(), is(WeakWrapMemo.MISS));
+
+        memo.put(null);
+        assertThat(memo.get(), is(nullValue()));
+
+        memo.clear();
+        assertThat(memo.get(), is(WeakWrapMemo.MISS));
+    }
+
+    @Test
+    public void testIntKeyed() {
+        WeakWrapMemo.IntKeyed memo = new WeakWrapMemo.IntKeyed(16);
+        memo.put(3, "three");
+        memo.put(-7, "minus seven");
+
+        assertThat(memo.get(3), is((Object) "three"));
+        assertThat(memo.get(-7), is((Object) "minus seven"));
+        assertThat(memo.get(4), is(WeakWrapMemo.MISS));
+
+        memo.clear();
+        assertThat(memo.get(3), is(WeakWrapMemo.MISS));
+    }
+
+    @Test
+    public void testLongKeyed() {
+        WeakWrapMemo.LongKeyed memo = new WeakWrapMemo.LongKeyed(16);
+        memo.put(1L << 40, "big");
+
+        assertThat(memo.get(1L << 40), is((Object) "big"));
+        assertThat(memo.get(0L), is(WeakWrapMemo.MISS));
+    }
+
+    @Test
+    public void testKeyedComparesArgumentsDeeply() {
+        WeakWrapMemo.Keyed memo = new WeakWrapMemo.Keyed(16);
+        memo.put(WeakWrapMemo.key("en", new int[]{1, 2}), "first");
+
+        assertThat(memo.get(WeakWrapMemo.key("en", new int[]{1, 2})), is((Object) "first"));
+        assertThat(memo.get(WeakWrapMemo.key("en", new int[]{2, 1})), is(WeakWrapMemo.MISS));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        WeakWrapMemo.IntKeyed memo = new WeakWrapMemo.IntKeyed(4);
+        for (int i = 0; i < 100; i++) {
+            memo.put(i, i);
+        }
+        int cached = 0;
+        for (int i = 0; i < 100; i++) {
+            if (memo.get(i) != WeakWrapMemo.MISS) {
+                cached++;
+            }
+        }
+        assertThat(cached <= 4, is(true));
+    }
+
+    @Test
+    public void testSlotCountRoundsUpToPowerOfTwo() {
+        assertThat(WeakWrapMemo.slotCount(1), is(1));
+        assertThat(WeakWrapMemo.slotCount(64), is(64));
+        assertThat(WeakWrapMemo.slotCount(100), is(128));
+        assertThat(WeakWrapMemo.slotCount(Integer.MAX_VALUE), is(1 << 30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxSizeMustBePositive() {
+        new WeakWrapMemo.Keyed(0);
+    }
+}
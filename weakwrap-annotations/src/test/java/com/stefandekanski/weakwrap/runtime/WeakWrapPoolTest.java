@@ -0,0 +1,77 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapPoolTest {
+
+    WeakWrapPool<String, Holder> pool;
+    int created;
+
+    @Before
+    public void setUp() {
+        pool = new WeakWrapPool<>(new WeakWrapPool.Factory<Holder>() {
+            @Override
+            public Holder create() {
+                created++;
+                return new Holder();
+            }
+        }, 2);
+    }
+
+    @Test
+    public void testReleasedWrapperIsReused() {
+        Holder first = pool.acquire("first");
+        pool.release(first);
+
+        assertThat(first.target, is(nullValue()));
+
+        Holder second = pool.acquire("second");
+
+        assertThat(second, sameInstance(first));
+        assertThat(second.target, is("second"));
+        assertThat(created, is(1));
+    }
+
+    @Test
+    public void testDoubleReleaseIsPooledOnce() {
+        Holder wrapper = pool.acquire("target");
+        pool.release(wrapper);
+        pool.release(wrapper);
+
+        assertThat(pool.pooledOnThisThread(), is(1));
+        assertThat(pool.acquire("a"), not(sameInstance(pool.acquire("b"))));
+    }
+
+    @Test
+    public void testStripeIsBounded() {
+        Holder[] wrappers = {pool.acquire("a"), pool.acquire("b"), pool.acquire("c")};
+        for (Holder wrapper : wrappers) {
+            pool.release(wrapper);
+        }
+
+        assertThat(pool.pooledOnThisThread(), is(2));
+    }
+
+    static class Holder implements WeakWrapPool.Rebindable<String> {
+        String target;
+
+        @Override
+        public void rebind(String target) {
+            this.target = target;
+        }
+
+        @Override
+        public boolean release() {
+            boolean bound = target != null;
+            target = null;
+            return bound;
+        }
+    }
+}
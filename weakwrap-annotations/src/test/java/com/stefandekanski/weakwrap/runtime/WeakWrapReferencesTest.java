@@ -0,0 +1,62 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapReferencesTest {
+
+    @Test
+    public void testSameTargetSharesReference() {
+        Object target = new Object();
+
+        assertThat(WeakWrapReferences.shared(target), sameInstance(WeakWrapReferences.shared(target)));
+        assertThat(WeakWrapReferences.shared(target).get(), sameInstance(target));
+    }
+
+    @Test
+    public void testTargetsAreMatchedByIdentity() {
+        String first = new String("target");
+        String second = new String("target");
+
+        assertThat(WeakWrapReferences.shared(first), not(sameInstance(WeakWrapReferences.shared(second))));
+    }
+
+    @Test
+    public void testManyTargets() {
+        Object[] targets = new Object[10000];
+        WeakReference<?>[] references = new WeakReference<?>[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new Object();
+            references[i] = WeakWrapReferences.shared(targets[i]);
+        }
+        for (int i = 0; i < targets.length; i++) {
+            assertThat(WeakWrapReferences.shared(targets[i]), sameInstance((Object) references[i]));
+        }
+    }
+
+    @Test
+    public void testCollectedTargetsAreDropped() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            WeakWrapReferences.shared(new Object());
+        }
+        for (int i = 0; i < 50 && WeakWrapReferences.size() >= 1000; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(WeakWrapReferences.size() < 1000, is(true));
+    }
+
+    @Test
+    public void testCleared() {
+        assertThat(WeakWrapReferences.cleared().get(), nullValue());
+        assertThat(WeakWrapReferences.shared(null).get(), nullValue());
+    }
+}
@@ -0,0 +1,234 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapRegistryTest {
+
+    WeakWrapRegistry.Factory<Object, Wrapper> factory;
+    int created;
+
+    @Before
+    public void setUp() {
+        factory = new WeakWrapRegistry.Factory<Object, Wrapper>() {
+            @Override
+            public Wrapper wrap(Object target) {
+                created++;
+                return new Wrapper(target);
+            }
+        };
+    }
+
+    @Test
+    public void testRegisteredWrapperIsFound() {
+        WeakWrapRegistry<String, Object, Wrapper> registry = new WeakWrapRegistry<>(factory);
+        Object target = new Object();
+
+        Wrapper wrapper = registry.register("session", target);
+
+        assertThat(registry.get("session"), sameInstance(wrapper));
+        assertThat(registry.register("session", target), sameInstance(wrapper));
+        assertThat(registry.get("other"), is(nullValue()));
+        assertThat(created, is(1));
+    }
+
+    @Test
+    public void testNewTargetReplacesEntry() {
+        WeakWrapRegistry<String, Object, Wrapper> registry = new WeakWrapRegistry<>(factory);
+        Object first = new Object();
+        Object second = new Object();
+
+        Wrapper firstWrapper = registry.register("session", first);
+        Wrapper secondWrapper = registry.register("session", second);
+
+        assertThat(secondWrapper, not(sameInstance(firstWrapper)));
+        assertThat(registry.get("session"), sameInstance(secondWrapper));
+        assertThat(registry.size(), is(1));
+    }
+
+    @Test
+    public void testRemove() {
+        WeakWrapRegistry<String, Object, Wrapper> registry = new WeakWrapRegistry<>(factory);
+        Object target = new Object();
+        registry.register("session", target);
+
+        assertThat(registry.remove("session"), is(true));
+        assertThat(registry.remove("session"), is(false));
+        assertThat(registry.get("session"), is(nullValue()));
+        assertThat(registry.size(), is(0));
+    }
+
+    @Test
+    public void testCollectedTargetsArePruned() throws InterruptedException {
+        WeakWrapRegistry<Integer, Object, Wrapper> registry = new WeakWrapRegistry<>(factory, 0, 4);
+        Object kept = new Object();
+        registry.register(-1, kept);
+        WeakReference<Object> lastDropped = null;
+        for (int i = 0; i < 1000; i++) {
+            Object dropped = new Object();
+            lastDropped = new WeakReference<>(dropped);
+            registry.register(i, dropped);
+        }
+        for (int i = 0; i < 100 && (lastDropped.get() != null || registry.size() > 1); i++) {
+            System.gc();
+            Thread.sleep(10);
+            registry.prune();
+        }
+
+        assertThat(registry.size(), is(1));
+        assertThat(registry.get(0), is(nullValue()));
+        assertThat(registry.get(-1).target.get(), sameInstance(kept));
+    }
+
+    @Test
+    public void testEntryNotLookedUpIsEvicted() {
+        WeakWrapRegistry<String, Object, Wrapper> registry = new WeakWrapRegistry<>(factory, 2, 1);
+        List<Object> targets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            targets.add(new Object());
+        }
+        registry.register("a", targets.get(0));
+        registry.register("b", targets.get(1));
+        registry.get("a");
+        registry.register("c", targets.get(2));
+
+        assertThat(registry.size(), is(2));
+        assertThat(registry.get("a"), is(not(nullValue())));
+        assertThat(registry.get("b"), is(nullValue()));
+        assertThat(registry.get("c"), is(not(nullValue())));
+    }
+
+    @Test
+    public void testLookedUpEntryGetsOneSecondChance() {
+        WeakWrapRegistry<String, Object, Wrapper> registry = new WeakWrapRegistry<>(factory, 2, 1);
+        List<Object> targets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            targets.add(new Object());
+        }
+        registry.register("a", targets.get(0));
+        registry.register("b", targets.get(1));
+        registry.get("a");
+        registry.get("b");
+        //the hand clears both bits, then evicts a
+        registry.register("c", targets.get(2));
+        //b was not looked up again since the hand passed it
+        registry.register("d", targets.get(3));
+
+        assertThat(registry.size(), is(2));
+        assertThat(registry.get("a"), is(nullValue()));
+        assertThat(registry.get("b"), is(nullValue()));
+        assertThat(registry.get("c"), is(not(nullValue())));
+        assertThat(registry.get("d"), is(not(nullValue())));
+    }
+
+    @Test
+    public void testBoundedStripeKeepsItsBoundWhileGrowing() {
+        WeakWrapRegistry<Integer, Object, Wrapper> registry = new WeakWrapRegistry<>(factory, 100, 1);
+        List<Object> targets = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            targets.add(new Object());
+            registry.register(i, targets.get(i));
+            if (i % 2 == 0) {
+                registry.remove(i);
+            }
+        }
+        assertThat(registry.size(), is(100));
+        assertThat(registry.get(999).target.get(), sameInstance(targets.get(999)));
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        WeakWrapRegistry<Integer, Object, Wrapper> registry = new WeakWrapRegistry<>(factory, 0, 1);
+        List<Object> targets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            targets.add(new Object());
+            registry.register(i, targets.get(i));
+        }
+        for (int i = 0; i < 500; i++) {
+            assertThat(registry.get(i).target.get(), sameInstance(targets.get(i)));
+        }
+        assertThat(registry.size(), is(500));
+    }
+
+    @Test
+    public void testLookupDoesNotAllocate() {
+        WeakWrapRegistry<String, Object, Wrapper> registry = new WeakWrapRegistry<>(factory, 1024);
+        Object target = new Object();
+        String[] keys = new String[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "session-" + i;
+            registry.register(keys[i], target);
+        }
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long threadId = Thread.currentThread().getId();
+        allocations.getThreadAllocatedBytes(threadId);
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        int found = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (registry.get(keys[i & 31]) != null) {
+                found++;
+            }
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(found, is(100000));
+        //a single allocation per lookup would be at least 1.6 MB
+        assertThat("allocated " + allocated, allocated < 64 * 1024, is(true));
+    }
+
+    @Test
+    public void testConcurrentRegisterAndGet() throws InterruptedException {
+        final WeakWrapRegistry<Integer, Object, Wrapper> registry = new WeakWrapRegistry<>(factory);
+        final Object[] targets = new Object[256];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new Object();
+        }
+        final AtomicInteger mismatches = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        int key = i % targets.length;
+                        Wrapper wrapper = i % 3 == 0 ? registry.register(key, targets[key]) : registry.get(key);
+                        if (wrapper != null && wrapper.target.get() != targets[key]) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+
+        assertThat(mismatches.get(), is(0));
+        assertThat(registry.size(), is(targets.length));
+    }
+
+    static class Wrapper {
+        final WeakReference<Object> target;
+
+        Wrapper(Object target) {
+            this.target = new WeakReference<>(target);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapReplayTest {
+
+    WeakWrapReplay<List<String>> replay;
+    List<String> target;
+
+    @Before
+    public void setUp() {
+        replay = new WeakWrapReplay<>(3);
+        target = new ArrayList<>();
+    }
+
+    @Test
+    public void testLastCallPerMethodInCallOrder() {
+        replay.record(2, add("first"));
+        replay.record(0, add("second"));
+        replay.record(2, add("third"));
+
+        assertThat(replay.pendingCalls(), is(2));
+
+        replay.replayTo(target);
+
+        assertThat(target, is(Arrays.asList("second", "third")));
+        assertThat(replay.pendingCalls(), is(0));
+    }
+
+    @Test
+    public void testReplayForgetsCalls() {
+        replay.record(1, add("once"));
+
+        replay.replayTo(target);
+        replay.replayTo(target);
+
+        assertThat(target, is(Arrays.asList("once")));
+    }
+
+    @Test
+    public void testClear() {
+        replay.record(1, add("dropped"));
+
+        replay.clear();
+        replay.replayTo(target);
+
+        assertThat(target.isEmpty(), is(true));
+    }
+
+    private static WeakWrapReplay.Call<List<String>> add(final String value) {
+        return new WeakWrapReplay.Call<List<String>>() {
+            @Override
+            public void replay(List<String> target) {
+                target.add(value);
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapScopeTest {
+
+    @Test
+    public void testInvalidateEndsCurrentEpoch() {
+        WeakWrapScope scope = new WeakWrapScope();
+        int before = scope.epoch();
+        assertThat(scope.isActive(before), is(true));
+
+        scope.invalidate();
+
+        assertThat(scope.isActive(before), is(false));
+        assertThat(scope.isActive(scope.epoch()), is(true));
+    }
+
+    @Test
+    public void testCloseInvalidates() {
+        int epoch;
+        WeakWrapScope closed;
+        try (WeakWrapScope scope = new WeakWrapScope()) {
+            epoch = scope.epoch();
+            closed = scope;
+            assertThat(scope.isActive(epoch), is(true));
+        }
+        assertThat(closed.isActive(epoch), is(false));
+    }
+}
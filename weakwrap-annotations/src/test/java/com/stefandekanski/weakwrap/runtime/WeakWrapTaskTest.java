@@ -0,0 +1,208 @@
+package com.stefandekanski.weakwrap.runtime;
+
+import com.stefandekanski.weakwrap.testing.GcProbe;
+import com.stefandekanski.weakwrap.testing.WeakWrapTesting;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapTaskTest {
+
+    ThreadPoolExecutor executor;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueuedTaskIsPurgedOnceTargetIsCollected() throws Exception {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        WeakWrapExecutor weakExecutor = new WeakWrapExecutor(executor);
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(await(blocker));
+        AtomicInteger runs = new AtomicInteger();
+
+        Object target = new Object();
+        GcProbe probe = WeakWrapTesting.probe(target);
+        Future<?> future = weakExecutor.submit(countRuns(target, runs));
+        target = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        awaitCancelled(future);
+        awaitEmpty(executor);
+        blocker.countDown();
+
+        assertThat(executor.getQueue().isEmpty(), is(true));
+        assertThat(future.isCancelled(), is(true));
+        assertThat(runs.get(), is(0));
+    }
+
+    @Test
+    public void testExecutedTaskFailureReachesWorkerThread() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            protected void afterExecute(Runnable task, Throwable failure) {
+                if (failure instanceof IllegalStateException) {
+                    failed.countDown();
+                }
+            }
+        };
+        Object target = new Object();
+
+        new WeakWrapExecutor(executor).execute(new WeakWrapTask<Object>(target) {
+            @Override
+            protected void run(Object target) {
+                throw new IllegalStateException();
+            }
+        });
+
+        assertThat(failed.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(target != null, is(true));
+    }
+
+    @Test
+    public void testSneakyCheckedFailureReachesWorkerThread() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            protected void afterExecute(Runnable task, Throwable failure) {
+                if (failure instanceof UndeclaredThrowableException && failure.getCause() instanceof IOException) {
+                    failed.countDown();
+                }
+            }
+        };
+        Object target = new Object();
+
+        new WeakWrapExecutor(executor).execute(new WeakWrapTask<Object>(target) {
+            @Override
+            protected void run(Object target) {
+                WeakWrapTaskTest.<RuntimeException>sneakyThrow(new IOException());
+            }
+        });
+
+        assertThat(failed.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(target != null, is(true));
+    }
+
+    @Test
+    public void testScheduledExecutorFailureReachesHandler() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final Thread.UncaughtExceptionHandler handler = new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable failure) {
+                if (failure instanceof IllegalStateException) {
+                    failed.countDown();
+                }
+            }
+        };
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                thread.setUncaughtExceptionHandler(handler);
+                return thread;
+            }
+        });
+        Object target = new Object();
+
+        new WeakWrapExecutor(executor).execute(new WeakWrapTask<Object>(target) {
+            @Override
+            protected void run(Object target) {
+                throw new IllegalStateException();
+            }
+        });
+
+        assertThat(failed.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(target != null, is(true));
+    }
+
+    @Test
+    public void testTaskRunsWhileTargetIsAlive() throws Exception {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        Object target = new Object();
+        AtomicInteger runs = new AtomicInteger();
+
+        new WeakWrapExecutor(executor).submit(countRuns(target, runs)).get();
+
+        assertThat(runs.get(), is(1));
+        //keeps the target reachable until the task ran
+        assertThat(target != null, is(true));
+    }
+
+    @Test
+    public void testPeriodicTaskCancelsItself() throws Exception {
+        ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(1);
+        executor = scheduled;
+        AtomicInteger runs = new AtomicInteger();
+
+        Object target = new Object();
+        GcProbe probe = WeakWrapTesting.probe(target);
+        Future<?> future = new WeakWrapExecutor(scheduled).scheduleAtFixedRate(countRuns(target, runs), 0, 5, TimeUnit.MILLISECONDS);
+        target = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        awaitCancelled(future);
+        awaitEmpty(scheduled);
+
+        assertThat(future.isCancelled(), is(true));
+        assertThat(scheduled.getQueue().isEmpty(), is(true));
+    }
+
+    //a cancelled future wakes up its waiters, the reaper cancels shortly after the target is collected
+    private static void awaitCancelled(Future<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (CancellationException e) {
+            return;
+        }
+    }
+
+    //the reaper purges right after cancelling
+    private static void awaitEmpty(ThreadPoolExecutor executor) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!executor.getQueue().isEmpty() && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+
+    private static WeakWrapTask<Object> countRuns(Object target, final AtomicInteger runs) {
+        return new WeakWrapTask<Object>(target) {
+            @Override
+            protected void run(Object target) {
+                runs.incrementAndGet();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> void sneakyThrow(Throwable failure) throws E {
+        throw (E) failure;
+    }
+
+    private static Runnable await(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package com.stefandekanski.weakwrap.async;
+
+import com.stefandekanski.weakwrap.runtime.WeakWrapReaper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Continuations that hold their target weakly, the async counterpart of a generated wrapper.
+ * <p>
+ * {@code future.thenAccept(view::showBook)} keeps the view reachable until the future completes and lets the work
+ * go on after the view is gone. {@code WeakCompletion.thenAccept(future, view, View::showBook)} only keeps the view
+ * weakly, skips the continuation when it is gone and cancels the stage it returns as soon as the collector clears
+ * the view. The action has to be non capturing ({@code View::showBook}, not {@code view::showBook}), a lambda that
+ * captures the target keeps it alive.
+ * <p>
+ * The source stage is never cancelled implicitly, other consumers may still wait for it. When the target is its
+ * only consumer, opt in with {@link #cancelWhenCollected(Object, Future)}, and link the resource behind it with
+ * {@link #closeWhenCollected(Object, Closeable)}: cancelling a {@link CompletableFuture} does not interrupt the code
+ * computing it. Collected targets are handled on the shared {@code weakwrap-reaper} thread.
+ * <p>
+ * Linked work is released as soon as it is done when it is a {@link CompletableFuture}, other futures once seen
+ * done. A linked resource is watched until the target is collected; close the returned {@link Link} when the
+ * resource is closed earlier.
+ */
+public final class WeakCompletion {
+    //references are only enqueued while reachable, this keeps them reachable until their work is done
+    private static final Set<TargetReference> PENDING = ConcurrentHashMap.newKeySet();
+    private static final int MIN_SWEEP_SIZE = 64;
+    //futures other than CompletableFuture cannot report completion, done ones are swept out when PENDING doubled
+    private static volatile int sweepAt = MIN_SWEEP_SIZE;
+
+    private WeakCompletion() {
+    }
+
+    /**
+     * Runs {@code action} with the target and the result of {@code source} if the target is still alive then.
+     * The returned stage is cancelled when the target is collected first, {@code source} is left alone.
+     */
+    public static <T, R> CompletableFuture<Void> thenAccept(CompletionStage<R> source, T target,
+                                                            BiConsumer<? super T, ? super R> action) {
+        return thenApply(source, target, (original, result) -> {
+            action.accept(original, result);
+            return null;
+        });
+    }
+
+    /**
+     * Applies {@code function} to the target and the result of {@code source} if the target is still alive then.
+     * The returned stage is cancelled when the target is collected first, {@code source} is left alone.
+     */
+    public static <T, R, U> CompletableFuture<U> thenApply(CompletionStage<R> source, T target,
+                                                           BiFunction<? super T, ? super R, ? extends U> function) {
+        CompletableFuture<U> continuation = new CompletableFuture<>();
+        //only the stage created here is cancelled, it has no other consumer yet
+        TargetReference reference = register(target, continuation, false);
+        source.whenComplete((result, failure) -> {
+            @SuppressWarnings("unchecked")
+            T original = (T) reference.get();
+            if (failure != null) {
+                continuation.completeExceptionally(failure);
+            } else if (original == null) {
+                continuation.cancel(false);
+            } else {
+                try {
+                    continuation.complete(function.apply(original, result));
+                } catch (Throwable t) {
+                    continuation.completeExceptionally(t);
+                }
+            }
+        });
+        return continuation;
+    }
+
+    /**
+     * Cancels {@code work}, interrupting it if running, once {@code target} is collected. Only link work nobody else
+     * waits for, e.g. the source of {@link #thenAccept(CompletionStage, Object, BiConsumer)} when the target is its
+     * only consumer. Closing the returned link stops watching without cancelling.
+     */
+    public static Link cancelWhenCollected(Object target, Future<?> work) {
+        return register(target, work, true);
+    }
+
+    /**
+     * Closes {@code resource} once {@code target} is collected, e.g. the connection a pending request reads from.
+     * Close the returned link once the resource is closed otherwise, or it stays reachable until the target is gone.
+     */
+    public static Link closeWhenCollected(Object target, Closeable resource) {
+        return register(target, resource, false);
+    }
+
+    /**
+     * Number of targets still watched, for tests and diagnostics.
+     */
+    static int pendingTargets() {
+        return PENDING.size();
+    }
+
+    private static TargetReference register(Object target, Object work, boolean interrupt) {
+        if (target == null) {
+            throw new IllegalArgumentException("No target");
+        }
+        TargetReference reference = new TargetReference(target, work, interrupt);
+        PENDING.add(reference);
+        if (PENDING.size() >= sweepAt) {
+            sweepDone();
+        }
+        if (work instanceof Future) {
+            //nothing left to stop once the work is done
+            Future<?> future = (Future<?>) work;
+            if (future instanceof CompletableFuture) {
+                ((CompletableFuture<?>) future).whenComplete((result, failure) -> reference.done());
+            } else if (future.isDone()) {
+                reference.done();
+            }
+        }
+        return reference;
+    }
+
+    private static void sweepDone() {
+        for (TargetReference reference : PENDING) {
+            if (reference.work instanceof Future && ((Future<?>) reference.work).isDone()) {
+                reference.done();
+            }
+        }
+        sweepAt = Math.max(MIN_SWEEP_SIZE, PENDING.size() * 2);
+    }
+
+    /**
+     * Link between a target and the work or resource released once it is collected.
+     */
+    public interface Link extends AutoCloseable {
+        /**
+         * Stops watching the target, the linked work or resource is left as it is.
+         */
+        @Override
+        void close();
+    }
+
+    private static final class TargetReference extends WeakWrapReaper.WeakTarget<Object> implements Link {
+        private final Object work;
+        private final boolean interrupt;
+
+        TargetReference(Object referent, Object work, boolean interrupt) {
+            super(referent);
+            this.work = work;
+            this.interrupt = interrupt;
+        }
+
+        void done() {
+            PENDING.remove(this);
+        }
+
+        @Override
+        public void close() {
+            done();
+        }
+
+        @Override
+        protected void onCollected() {
+            if (!PENDING.remove(this)) {
+                return;
+            }
+            if (work instanceof Future) {
+                ((Future<?>) work).cancel(interrupt);
+            } else {
+                try {
+                    ((Closeable) work).close();
+                } catch (IOException e) {
+                    //the owner is gone, nobody is left to report to
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.stefandekanski.weakwrap.async;
+
+import com.stefandekanski.weakwrap.testing.GcProbe;
+import com.stefandekanski.weakwrap.testing.WeakWrapTesting;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakCompletionTest {
+
+    @Test
+    public void testContinuationRunsWhileTargetIsAlive() {
+        View view = new View();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<Void> shown = WeakCompletion.thenAccept(source, view, View::show);
+
+        source.complete("book");
+        assertThat(shown.isDone(), is(true));
+        assertThat(view.shown, is("book"));
+    }
+
+    @Test
+    public void testFailureIsPassedOn() {
+        View view = new View();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<Integer> length = WeakCompletion.thenApply(source, view, (v, book) -> book.length());
+
+        source.completeExceptionally(new IllegalStateException());
+        assertThat(length.isCompletedExceptionally(), is(true));
+        assertThat(view.shown == null, is(true));
+    }
+
+    @Test
+    public void testContinuationIsCancelledOnceTargetIsCollected() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        View view = new View();
+        GcProbe probe = WeakWrapTesting.probe(view);
+        CompletableFuture<Void> shown = WeakCompletion.thenAccept(source, view, View::show);
+        view = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        awaitCancelled(shown);
+
+        assertThat(shown.isCancelled(), is(true));
+        //other consumers may still wait for the source
+        assertThat(source.isDone(), is(false));
+    }
+
+    @Test
+    public void testSourceIsCancelledWhenLinked() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        View view = new View();
+        GcProbe probe = WeakWrapTesting.probe(view);
+        WeakCompletion.thenAccept(source, view, View::show);
+        WeakCompletion.cancelWhenCollected(view, source);
+        view = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        awaitCancelled(source);
+
+        assertThat(source.isCancelled(), is(true));
+    }
+
+    @Test
+    public void testLinkedCloseableIsClosedOnceTargetIsCollected() throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        View view = new View();
+        GcProbe probe = WeakWrapTesting.probe(view);
+        WeakCompletion.closeWhenCollected(view, new Closeable() {
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+        view = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+
+        assertThat(closed.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void testCompletedWorkIsNotWatchedAnymore() {
+        View view = new View();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        int before = WeakCompletion.pendingTargets();
+        WeakCompletion.thenAccept(source, view, View::show);
+        assertThat(WeakCompletion.pendingTargets(), is(before + 1));
+
+        source.complete("book");
+        assertThat(WeakCompletion.pendingTargets(), is(before));
+    }
+
+    @Test
+    public void testClosedLinkIsNotWatchedAnymore() throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        View view = new View();
+        GcProbe probe = WeakWrapTesting.probe(view);
+        int before = WeakCompletion.pendingTargets();
+        WeakCompletion.Link link = WeakCompletion.closeWhenCollected(view, new Closeable() {
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+        assertThat(WeakCompletion.pendingTargets(), is(before + 1));
+
+        link.close();
+        assertThat(WeakCompletion.pendingTargets(), is(before));
+        view = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        assertThat(closed.await(100, TimeUnit.MILLISECONDS), is(false));
+    }
+
+    @Test
+    public void testDonePlainFuturesAreSwept() {
+        View view = new View();
+        int before = WeakCompletion.pendingTargets();
+        for (int i = 0; i < 1000; i++) {
+            FutureTask<Void> work = new FutureTask<>(() -> null);
+            WeakCompletion.cancelWhenCollected(view, work);
+            work.run();
+        }
+
+        assertThat(WeakCompletion.pendingTargets() < before + 1000, is(true));
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelledContinuationThrowsOnJoin() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        View view = new View();
+        GcProbe probe = WeakWrapTesting.probe(view);
+        CompletableFuture<Void> shown = WeakCompletion.thenAccept(source, view, View::show);
+        view = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        awaitCancelled(shown);
+        shown.join();
+    }
+
+    //a cancelled future wakes up its waiters, the reaper cancels shortly after the target is collected
+    private static void awaitCancelled(Future<?> future) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (CancellationException e) {
+            return;
+        }
+    }
+
+    static class View {
+        String shown;
+
+        void show(String book) {
+            shown = book;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.stefandekanski.weakwrap.heapdump;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the wrappers generated by the WeakWrap processor in an HPROF heap dump and reports, per wrapper class,
+ * how many still reach their target, how many are cleared, what they retain and which targets are wrapped
+ * more than once, by the same class or by several.
+ * <p>
+ * Wrapper classes are recognised by their shape: an object field named {@code weakWrap} holding a
+ * {@code java.lang.ref.Reference}. HPROF does not record declared field types, so a class only counts once one of
+ * its instances holds an instance of a {@code Reference} subclass there; instances holding any other object are
+ * skipped and {@code null} fields are reported apart from cleared references. The dump is streamed through memory mapped windows in four passes (classes,
+ * names, wrappers, references), only the wrappers and their references are kept in memory, so dumps much
+ * bigger than the analyzer's heap work. Android dumps have to be converted with {@code hprof-conv} first.
+ * <pre>
+ * HeapDumpAnalyzer [--window-mb 256] dump.hprof
+ * </pre>
+ */
+public class HeapDumpAnalyzer {
+    static final String WEAK_WRAP_FIELD_NAME = "weakWrap";
+    static final String REFERENCE_CLASS_NAME = "java.lang.ref.Reference";
+    static final String REFERENT_FIELD_NAME = "referent";
+
+    private static final int TAG_UTF8 = 0x01;
+    private static final int TAG_LOAD_CLASS = 0x02;
+    private static final int TAG_HEAP_DUMP = 0x0C;
+    private static final int TAG_HEAP_DUMP_SEGMENT = 0x1C;
+
+    private static final int ROOT_UNKNOWN = 0xFF;
+    private static final int ROOT_JNI_GLOBAL = 0x01;
+    private static final int ROOT_JNI_LOCAL = 0x02;
+    private static final int ROOT_JAVA_FRAME = 0x03;
+    private static final int ROOT_NATIVE_STACK = 0x04;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int ROOT_THREAD_BLOCK = 0x06;
+    private static final int ROOT_MONITOR_USED = 0x07;
+    private static final int ROOT_THREAD_OBJECT = 0x08;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJECT_ARRAY_DUMP = 0x22;
+    private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    private static final int TYPE_OBJECT = 2;
+
+    private enum Pass {
+        CLASSES, NAMES, WRAPPERS, REFERENCES
+    }
+
+    private final File dump;
+    private final int windowSize;
+    private int idSize;
+
+    //pass CLASSES
+    private final Map<Long, ClassInfo> classes = new HashMap<>();
+    private final Map<Long, Long> classNameIds = new HashMap<>();
+    //pass NAMES
+    private final Set<Long> wantedNames = new HashSet<>();
+    private final Map<Long, String> names = new HashMap<>();
+    //wrapper and reference classes, offset of the weakWrap and referent field in their instances
+    private final Map<Long, Integer> wrapperClassIndexes = new HashMap<>();
+    private final List<ClassInfo> wrapperClasses = new ArrayList<>();
+    private final Map<Long, Integer> referenceClassOffsets = new HashMap<>();
+    //pass WRAPPERS, one entry per wrapper
+    private int wrapperCount;
+    private int[] wrapperClass = new int[1024];
+    private int[] wrapperShallowSize = new int[1024];
+    private int[] wrapperReference = new int[1024];
+    //pass REFERENCES, one entry per distinct reference held by a wrapper
+    private final LongIndex references = new LongIndex();
+    private long[] referents = new long[1024];
+    private int[] referenceShallowSize = new int[1024];
+    private int[] referenceOwners = new int[1024];
+
+    HeapDumpAnalyzer(File dump, int windowSize) {
+        this.dump = dump;
+        this.windowSize = windowSize;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int windowMegabytes = 256;
+        File dump = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--window-mb".equals(args[i]) && i + 1 < args.length) {
+                windowMegabytes = Integer.parseInt(args[++i]);
+            } else {
+                dump = new File(args[i]);
+            }
+        }
+        if (dump == null) {
+            throw new IllegalArgumentException("Usage: HeapDumpAnalyzer [--window-mb 256] dump.hprof");
+        }
+        List<WrapperTypeReport> reports = new HeapDumpAnalyzer(dump, windowMegabytes * 1024 * 1024).analyze();
+        printReports(reports);
+    }
+
+    List<WrapperTypeReport> analyze() throws IOException {
+        try (HprofReader in = new HprofReader(dump, windowSize)) {
+            long firstRecord = readHeader(in);
+            idSize = in.idSize();
+            scan(in, firstRecord, Pass.CLASSES);
+            collectWantedNames();
+            scan(in, firstRecord, Pass.NAMES);
+            resolveClasses();
+            scan(in, firstRecord, Pass.WRAPPERS);
+            scan(in, firstRecord, Pass.REFERENCES);
+        }
+        return buildReports();
+    }
+
+    static void printReports(List<WrapperTypeReport> reports) {
+        System.out.println(String.format(Locale.ROOT, "%-60s %10s %10s %10s %10s %14s %12s %12s %10s %12s",
+                "wrapper class", "wrappers", "live", "cleared", "null", "retained B", "dup targets", "dup wrappers",
+                "max/target", "other class"));
+        for (WrapperTypeReport report : reports) {
+            System.out.println(String.format(Locale.ROOT, "%-60s %10d %10d %10d %10d %14d %12d %12d %10d %12d",
+                    report.className, report.wrappers, report.live, report.cleared, report.nullFields, report.retainedBytes,
+                    report.duplicateTargets, report.wrappersOfDuplicateTargets, report.maxWrappersPerTarget,
+                    report.targetsWrappedByOtherClasses));
+        }
+    }
+
+    private static long readHeader(HprofReader in) throws IOException {
+        StringBuilder format = new StringBuilder();
+        int ch;
+        while ((ch = in.u1()) != 0) {
+            format.append((char) ch);
+        }
+        if (!format.toString().startsWith("JAVA PROFILE")) {
+            throw new IOException("Not an HPROF file: " + format);
+        }
+        in.setIdSize((int) in.u4());
+        in.skip(8); //timestamp
+        return in.position();
+    }
+
+    private void scan(HprofReader in, long firstRecord, Pass pass) throws IOException {
+        in.seek(firstRecord);
+        while (in.hasRemaining()) {
+            int tag = in.u1();
+            in.skip(4); //time
+            long length = in.u4();
+            long end = in.position() + length;
+            if (tag == TAG_UTF8 && pass == Pass.NAMES) {
+                readName(in, length);
+            } else if (tag == TAG_LOAD_CLASS && pass == Pass.CLASSES) {
+                in.skip(4); //serial
+                long classId = in.id();
+                in.skip(4); //stack trace serial
+                classNameIds.put(classId, in.id());
+            } else if ((tag == TAG_HEAP_DUMP || tag == TAG_HEAP_DUMP_SEGMENT) && pass != Pass.NAMES) {
+                scanHeapDump(in, end, pass);
+            }
+            in.seek(end);
+        }
+    }
+
+    private void readName(HprofReader in, long length) throws IOException {
+        long id = in.id();
+        if (wantedNames.contains(id)) {
+            names.put(id, new String(in.bytes((int) (length - idSize)), Charset.forName("UTF-8")));
+        }
+    }
+
+    private void scanHeapDump(HprofReader in, long end, Pass pass) throws IOException {
+        while (in.position() < end) {
+            int subTag = in.u1();
+            switch (subTag) {
+                case ROOT_UNKNOWN:
+                case ROOT_STICKY_CLASS:
+                case ROOT_MONITOR_USED:
+                    in.skip(idSize);
+                    break;
+                case ROOT_JNI_GLOBAL:
+                    in.skip(2 * idSize);
+                    break;
+                case ROOT_JNI_LOCAL:
+                case ROOT_JAVA_FRAME:
+                case ROOT_THREAD_OBJECT:
+                    in.skip(idSize + 8);
+                    break;
+                case ROOT_NATIVE_STACK:
+                case ROOT_THREAD_BLOCK:
+                    in.skip(idSize + 4);
+                    break;
+                case CLASS_DUMP:
+                    readClassDump(in, pass == Pass.CLASSES);
+                    break;
+                case INSTANCE_DUMP:
+                    readInstanceDump(in, pass);
+                    break;
+                case OBJECT_ARRAY_DUMP: {
+                    in.skip(idSize + 4);
+                    long count = in.u4();
+                    in.skip(idSize + count * idSize);
+                    break;
+                }
+                case PRIMITIVE_ARRAY_DUMP: {
+                    in.skip(idSize + 4);
+                    long count = in.u4();
+                    int type = in.u1();
+                    in.skip(count * typeSize(type, idSize));
+                    break;
+                }
+                default:
+                    throw new IOException("Unsupported heap dump sub-record 0x" + Integer.toHexString(subTag)
+                            + " at offset " + (in.position() - 1));
+            }
+        }
+    }
+
+    private void readClassDump(HprofReader in, boolean keep) throws IOException {
+        ClassInfo info = new ClassInfo(in.id());
+        in.skip(4); //stack trace serial
+        info.superId = in.id();
+        in.skip(5 * idSize); //loader, signers, protection domain, reserved
+        in.skip(4); //instance size
+        int constants = in.u2();
+        for (int i = 0; i < constants; i++) {
+            in.skip(2);
+            in.skip(typeSize(in.u1(), idSize));
+        }
+        int statics = in.u2();
+        for (int i = 0; i < statics; i++) {
+            in.skip(idSize);
+            in.skip(typeSize(in.u1(), idSize));
+        }
+        int fields = in.u2();
+        info.fieldNameIds = new long[fields];
+        info.fieldTypes = new int[fields];
+        for (int i = 0; i < fields; i++) {
+            info.fieldNameIds[i] = in.id();
+            info.fieldTypes[i] = in.u1();
+        }
+        if (keep) {
+            classes.put(info.id, info);
+        }
+    }
+
+    private void readInstanceDump(HprofReader in, Pass pass) throws IOException {
+        long objectId = in.id();
+        in.skip(4); //stack trace serial
+        long classId = in.id();
+        long length = in.u4();
+        long end = in.position() + length;
+        if (pass == Pass.WRAPPERS) {
+            Integer wrapperIndex = wrapperClassIndexes.get(classId);
+            if (wrapperIndex != null) {
+                in.skip(wrapperClasses.get(wrapperIndex).weakWrapOffset);
+                addWrapper(wrapperIndex, (int) length, in.id());
+            }
+        } else if (pass == Pass.REFERENCES) {
+            Integer referentOffset = referenceClassOffsets.get(classId);
+            int reference = references.get(objectId);
+            if (referentOffset != null && reference >= 0) {
+                in.skip(referentOffset);
+                referents[reference] = in.id();
+                referenceShallowSize[reference] = shallowSize((int) length, idSize);
+            }
+        }
+        in.seek(end);
+    }
+
+    private void addWrapper(int wrapperIndex, int length, long referenceId) {
+        wrapperClass = LongIndex.grow(wrapperClass, wrapperCount + 1);
+        wrapperShallowSize = LongIndex.grow(wrapperShallowSize, wrapperCount + 1);
+        wrapperReference = LongIndex.grow(wrapperReference, wrapperCount + 1);
+        int reference = references.add(referenceId);
+        if (reference >= 0) {
+            referents = LongIndex.grow(referents, reference + 1);
+            referenceShallowSize = LongIndex.grow(referenceShallowSize, reference + 1);
+            referenceOwners = LongIndex.grow(referenceOwners, reference + 1);
+            referenceOwners[reference]++;
+        }
+        wrapperClass[wrapperCount] = wrapperIndex;
+        wrapperShallowSize[wrapperCount] = length;
+        wrapperReference[wrapperCount] = reference;
+        wrapperCount++;
+    }
+
+    private void collectWantedNames() {
+        wantedNames.addAll(classNameIds.values());
+        for (ClassInfo info : classes.values()) {
+            for (long fieldNameId : info.fieldNameIds) {
+                wantedNames.add(fieldNameId);
+            }
+        }
+    }
+
+    private void resolveClasses() {
+        for (ClassInfo info : classes.values()) {
+            Long nameId = classNameIds.get(info.id);
+            String name = nameId != null ? names.get(nameId) : null;
+            info.name = name != null ? name.replace('/', '.') : "0x" + Long.toHexString(info.id);
+        }
+        for (ClassInfo info : classes.values()) {
+            int weakWrapOffset = fieldOffset(info, WEAK_WRAP_FIELD_NAME, null);
+            if (weakWrapOffset >= 0) {
+                wrapperClassIndexes.put(info.id, wrapperClasses.size());
+                info.weakWrapOffset = weakWrapOffset;
+                wrapperClasses.add(info);
+            }
+            int referentOffset = fieldOffset(info, REFERENT_FIELD_NAME, REFERENCE_CLASS_NAME);
+            if (referentOffset >= 0) {
+                referenceClassOffsets.put(info.id, referentOffset);
+            }
+        }
+    }
+
+    /**
+     * Offset of the first object field called {@code fieldName} in instance dumps of {@code info}, optionally only
+     * when declared by {@code declaringClass}. Instance dumps list the fields of the class first, then those of
+     * its superclasses. Returns {@code -1} when there is no such field.
+     */
+    private int fieldOffset(ClassInfo info, String fieldName, String declaringClass) {
+        int offset = 0;
+        for (ClassInfo type = info; type != null; type = classes.get(type.superId)) {
+            for (int i = 0; i < type.fieldNameIds.length; i++) {
+                boolean declaredThere = declaringClass == null || declaringClass.equals(type.name);
+                if (type.fieldTypes[i] == TYPE_OBJECT && declaredThere && fieldName.equals(names.get(type.fieldNameIds[i]))) {
+                    return offset;
+                }
+                offset += typeSize(type.fieldTypes[i], idSize);
+            }
+        }
+        return -1;
+    }
+
+    private List<WrapperTypeReport> buildReports() {
+        Map<Integer, WrapperTypeReport> reports = new LinkedHashMap<>();
+        long[][] targets = new long[wrapperClasses.size()][];
+        int[] targetCounts = new int[wrapperClasses.size()];
+        boolean[] holdsReferences = new boolean[wrapperClasses.size()];
+        for (int i = 0; i < wrapperCount; i++) {
+            if (holdsReference(i)) {
+                holdsReferences[wrapperClass[i]] = true;
+            }
+        }
+        for (int i = 0; i < wrapperCount; i++) {
+            int type = wrapperClass[i];
+            int reference = wrapperReference[i];
+            //a class whose weakWrap never holds a reference, or an instance holding something else, is not one of ours
+            if (!holdsReferences[type] || (reference >= 0 && !holdsReference(i))) {
+                continue;
+            }
+            WrapperTypeReport report = reports.get(type);
+            if (report == null) {
+                report = new WrapperTypeReport(wrapperClasses.get(type).name);
+                reports.put(type, report);
+                targets[type] = new long[16];
+            }
+            report.wrappers++;
+            report.retainedBytes += shallowSize(wrapperShallowSize[i], idSize);
+            long referent = reference >= 0 ? referents[reference] : 0;
+            if (reference >= 0 && referenceOwners[reference] == 1) {
+                report.retainedBytes += referenceShallowSize[reference];
+            }
+            if (reference < 0) {
+                report.nullFields++;
+            } else if (referent == 0) {
+                report.cleared++;
+            } else {
+                report.live++;
+                targets[type] = LongIndex.grow(targets[type], targetCounts[type] + 1);
+                targets[type][targetCounts[type]++] = referent;
+            }
+        }
+        Map<Integer, long[]> distinctTargets = new HashMap<>();
+        for (Map.Entry<Integer, WrapperTypeReport> entry : reports.entrySet()) {
+            long[] classTargets = Arrays.copyOf(targets[entry.getKey()], targetCounts[entry.getKey()]);
+            countDuplicates(entry.getValue(), classTargets);
+            distinctTargets.put(entry.getKey(), distinct(classTargets));
+        }
+        countTargetsOfOtherClasses(reports, distinctTargets);
+        List<WrapperTypeReport> sorted = new ArrayList<>(reports.values());
+        Collections.sort(sorted, new Comparator<WrapperTypeReport>() {
+            @Override
+            public int compare(WrapperTypeReport first, WrapperTypeReport second) {
+                return second.wrappers - first.wrappers;
+            }
+        });
+        return sorted;
+    }
+
+    //the weakWrap field points at an instance of a Reference subclass
+    private boolean holdsReference(int wrapper) {
+        int reference = wrapperReference[wrapper];
+        return reference >= 0 && referenceShallowSize[reference] > 0;
+    }
+
+    /**
+     * Counts, per class, the targets that wrappers of another class wrap as well, e.g. a view wrapped once as a
+     * listener and once as a callback. The distinct targets of all classes are sorted together, a target in several
+     * classes shows up as a run.
+     */
+    private static void countTargetsOfOtherClasses(Map<Integer, WrapperTypeReport> reports, Map<Integer, long[]> distinctTargets) {
+        int total = 0;
+        for (long[] classTargets : distinctTargets.values()) {
+            total += classTargets.length;
+        }
+        long[] all = new long[total];
+        int filled = 0;
+        for (long[] classTargets : distinctTargets.values()) {
+            System.arraycopy(classTargets, 0, all, filled, classTargets.length);
+            filled += classTargets.length;
+        }
+        Arrays.sort(all);
+        long[] shared = new long[16];
+        int sharedCount = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1] && (sharedCount == 0 || shared[sharedCount - 1] != all[i])) {
+                shared = LongIndex.grow(shared, sharedCount + 1);
+                shared[sharedCount++] = all[i];
+            }
+        }
+        for (Map.Entry<Integer, long[]> entry : distinctTargets.entrySet()) {
+            WrapperTypeReport report = reports.get(entry.getKey());
+            for (long target : entry.getValue()) {
+                if (Arrays.binarySearch(shared, 0, sharedCount, target) >= 0) {
+                    report.targetsWrappedByOtherClasses++;
+                }
+            }
+        }
+    }
+
+    //expects sorted targets
+    private static long[] distinct(long[] targets) {
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (i == 0 || targets[i] != targets[i - 1]) {
+                targets[count++] = targets[i];
+            }
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    private static void countDuplicates(WrapperTypeReport report, long[] targets) {
+        Arrays.sort(targets);
+        int i = 0;
+        while (i < targets.length) {
+            int run = 1;
+            while (i + run < targets.length && targets[i + run] == targets[i]) {
+                run++;
+            }
+            if (run > 1) {
+                report.duplicateTargets++;
+                report.wrappersOfDuplicateTargets += run;
+            }
+            report.maxWrappersPerTarget = Math.max(report.maxWrappersPerTarget, run);
+            i += run;
+        }
+    }
+
+    //HPROF does not record object headers, assume two words
+    private static int shallowSize(int fieldBytes, int idSize) {
+        int size = 2 * idSize + fieldBytes;
+        return (size + 7) & ~7;
+    }
+
+    private static int typeSize(int type, int idSize) {
+        switch (type) {
+            case TYPE_OBJECT:
+                return idSize;
+            case 4: //boolean
+            case 8: //byte
+                return 1;
+            case 5: //char
+            case 9: //short
+                return 2;
+            case 6: //float
+            case 10: //int
+                return 4;
+            case 7: //double
+            case 11: //long
+                return 8;
+            default:
+                throw new IllegalArgumentException("Unknown basic type " + type);
+        }
+    }
+
+    private static final class ClassInfo {
+        final long id;
+        long superId;
+        long[] fieldNameIds;
+        int[] fieldTypes;
+        String name;
+        int weakWrapOffset;
+
+        ClassInfo(long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.stefandekanski.weakwrap.heapdump;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Big endian reader over an HPROF file that maps one window of the file at a time, so files of any size
+ * are read without loading them into the heap. Moving outside of the current window maps the next one.
+ */
+final class HprofReader implements Closeable {
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private int idSize;
+
+    HprofReader(File dump, int windowSize) throws IOException {
+        if (windowSize < 8) {
+            throw new IllegalArgumentException("windowSize must be at least 8 bytes: " + windowSize);
+        }
+        this.file = new RandomAccessFile(dump, "r");
+        this.channel = file.getChannel();
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long position() {
+        return position;
+    }
+
+    void seek(long position) {
+        this.position = position;
+    }
+
+    void skip(long bytes) {
+        position += bytes;
+    }
+
+    boolean hasRemaining() {
+        return position < size;
+    }
+
+    int idSize() {
+        return idSize;
+    }
+
+    void setIdSize(int idSize) throws IOException {
+        if (idSize != 4 && idSize != 8) {
+            throw new IOException("Unsupported identifier size " + idSize);
+        }
+        this.idSize = idSize;
+    }
+
+    int u1() throws IOException {
+        ensure(1);
+        int value = window.get(offset()) & 0xFF;
+        position += 1;
+        return value;
+    }
+
+    int u2() throws IOException {
+        ensure(2);
+        int value = window.getShort(offset()) & 0xFFFF;
+        position += 2;
+        return value;
+    }
+
+    long u4() throws IOException {
+        ensure(4);
+        long value = window.getInt(offset()) & 0xFFFFFFFFL;
+        position += 4;
+        return value;
+    }
+
+    long u8() throws IOException {
+        ensure(8);
+        long value = window.getLong(offset());
+        position += 8;
+        return value;
+    }
+
+    long id() throws IOException {
+        return idSize == 4 ? u4() : u8();
+    }
+
+    byte[] bytes(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            ensure(1);
+            int available = (int) Math.min(length - read, windowStart + window.limit() - position);
+            for (int i = 0; i < available; i++) {
+                bytes[read + i] = window.get(offset() + i);
+            }
+            read += available;
+            position += available;
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int offset() {
+        return (int) (position - windowStart);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > size) {
+            throw new EOFException("Truncated heap dump at offset " + position);
+        }
+        if (window == null || position < windowStart || position + bytes > windowStart + window.limit()) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        }
+    }
+}
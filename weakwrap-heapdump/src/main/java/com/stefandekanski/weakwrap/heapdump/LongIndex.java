@@ -0,0 +1,82 @@
+package com.stefandekanski.weakwrap.heapdump;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense indexes to object ids, open addressing over a plain {@code long[]} so millions of ids
+ * cost a few bytes each instead of a boxed map entry.
+ */
+final class LongIndex {
+    private static final long EMPTY = 0;
+
+    private long[] keys = new long[64];
+    private int[] indexes = new int[64];
+    private int size;
+
+    /**
+     * Returns the index of {@code key}, adding it when absent. Object id {@code 0} is the null reference and never added.
+     */
+    int add(long key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return indexes[slot];
+        }
+        keys[slot] = key;
+        indexes[slot] = size;
+        if (++size > keys.length >> 1) {
+            resize();
+        }
+        return size - 1;
+    }
+
+    int get(long key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int slot = find(key);
+        return keys[slot] == key ? indexes[slot] : -1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldIndexes = indexes;
+        keys = new long[oldKeys.length * 2];
+        indexes = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                indexes[slot] = oldIndexes[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    static long[] grow(long[] array, int minLength) {
+        return minLength <= array.length ? array : Arrays.copyOf(array, Math.max(minLength, array.length * 2));
+    }
+
+    static int[] grow(int[] array, int minLength) {
+        return minLength <= array.length ? array : Arrays.copyOf(array, Math.max(minLength, array.length * 2));
+    }
+}
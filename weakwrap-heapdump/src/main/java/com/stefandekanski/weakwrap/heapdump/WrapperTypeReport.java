@@ -0,0 +1,44 @@
+package com.stefandekanski.weakwrap.heapdump;
+
+/**
+ * Findings for one generated wrapper class of a heap dump.
+ */
+public class WrapperTypeReport {
+    public final String className;
+    public int wrappers;
+    /**
+     * Wrappers whose reference still points at a target.
+     */
+    public int live;
+    /**
+     * Wrappers whose reference was cleared, by the collector or by {@code clearWeakWrapRef()}.
+     */
+    public int cleared;
+    /**
+     * Wrappers whose {@code weakWrap} field is {@code null}, e.g. caught in their constructor by the dump. Generated
+     * wrappers never clear the field itself, so these are not counted as cleared.
+     */
+    public int nullFields;
+    /**
+     * Shallow size of the wrappers plus the references only they hold, everything a wrapper keeps alive
+     * unless it has extra state (memoized results, recorded calls). Sizes assume an uncompressed object header.
+     */
+    public long retainedBytes;
+    /**
+     * Targets wrapped by more than one wrapper of this class.
+     */
+    public int duplicateTargets;
+    /**
+     * Wrappers sharing their target with another wrapper of this class.
+     */
+    public int wrappersOfDuplicateTargets;
+    public int maxWrappersPerTarget;
+    /**
+     * Live targets of this class that wrappers of another class wrap as well.
+     */
+    public int targetsWrappedByOtherClasses;
+
+    WrapperTypeReport(String className) {
+        this.className = className;
+    }
+}
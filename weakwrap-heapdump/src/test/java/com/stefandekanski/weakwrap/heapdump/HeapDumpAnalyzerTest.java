@@ -0,0 +1,120 @@
+package com.stefandekanski.weakwrap.heapdump;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class HeapDumpAnalyzerTest {
+
+    File dump;
+    List<Object> reachable = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        dump = File.createTempFile("weakwrap-", ".hprof");
+        //dumpHeap refuses to overwrite
+        dump.delete();
+    }
+
+    @After
+    public void tearDown() {
+        dump.delete();
+    }
+
+    @Test
+    public void testCountsLiveClearedAndDuplicateWrappers() throws IOException {
+        Object shared = new Object();
+        Object single = new Object();
+        reachable.add(shared);
+        reachable.add(single);
+        reachable.add(new SampleWrapper(shared));
+        reachable.add(new SampleWrapper(shared));
+        reachable.add(new SampleWrapper(shared));
+        reachable.add(new SampleWrapper(single));
+        SampleWrapper cleared = new SampleWrapper(new Object());
+        cleared.weakWrap.clear();
+        reachable.add(cleared);
+        reachable.add(new SampleWrapper());
+        reachable.add(new OtherWrapper(shared));
+        reachable.add(new NotAWrapper());
+        reachable.add(new NullOnlyWrapper());
+
+        dumpHeap();
+        //small windows make records cross window boundaries
+        List<WrapperTypeReport> reports = new HeapDumpAnalyzer(dump, 64 * 1024).analyze();
+
+        WrapperTypeReport report = find(reports, SampleWrapper.class);
+        assertThat(report, notNullValue());
+        assertThat(report.wrappers, is(6));
+        assertThat(report.live, is(4));
+        assertThat(report.cleared, is(1));
+        assertThat(report.nullFields, is(1));
+        assertThat(report.duplicateTargets, is(1));
+        assertThat(report.wrappersOfDuplicateTargets, is(3));
+        assertThat(report.maxWrappersPerTarget, is(3));
+        assertThat(report.targetsWrappedByOtherClasses, is(1));
+        assertThat(report.retainedBytes > 0, is(true));
+        WrapperTypeReport other = find(reports, OtherWrapper.class);
+        assertThat(other.wrappers, is(1));
+        assertThat(other.targetsWrappedByOtherClasses, is(1));
+        assertThat(find(reports, NotAWrapper.class), is((WrapperTypeReport) null));
+        //a weakWrap field that never holds a reference is not a wrapper, not one full of cleared ones
+        assertThat(find(reports, NullOnlyWrapper.class), is((WrapperTypeReport) null));
+    }
+
+    private void dumpHeap() throws IOException {
+        HotSpotDiagnosticMXBean diagnostics = ManagementFactory.newPlatformMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                "com.sun.management:type=HotSpotDiagnostic", HotSpotDiagnosticMXBean.class);
+        diagnostics.dumpHeap(dump.getPath(), true);
+    }
+
+    private static WrapperTypeReport find(List<WrapperTypeReport> reports, Class<?> type) {
+        for (WrapperTypeReport report : reports) {
+            if (report.className.equals(type.getName())) {
+                return report;
+            }
+        }
+        return null;
+    }
+
+    static class SampleWrapper {
+        final WeakReference<Object> weakWrap;
+
+        SampleWrapper(Object target) {
+            weakWrap = new WeakReference<>(target);
+        }
+
+        //what a dump taken inside the constructor sees
+        SampleWrapper() {
+            weakWrap = null;
+        }
+    }
+
+    static class OtherWrapper {
+        final WeakReference<Object> weakWrap;
+
+        OtherWrapper(Object target) {
+            weakWrap = new WeakReference<>(target);
+        }
+    }
+
+    static class NotAWrapper {
+        final Object weakWrap = new Object();
+    }
+
+    static class NullOnlyWrapper {
+        Object weakWrap;
+    }
+}
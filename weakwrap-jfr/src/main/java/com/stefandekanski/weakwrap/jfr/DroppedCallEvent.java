@@ -0,0 +1,19 @@
+package com.stefandekanski.weakwrap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.stefandekanski.weakwrap.DroppedCall")
+@Label("Dropped Call")
+@Description("A call through a wrapper whose target is gone, it returned the default value")
+@Category("WeakWrap")
+class DroppedCallEvent extends Event {
+    @Label("Wrapper Type")
+    Class<?> wrapperType;
+
+    @Label("Method")
+    String method;
+}
@@ -0,0 +1,64 @@
+package com.stefandekanski.weakwrap.jfr;
+
+import com.stefandekanski.weakwrap.runtime.WeakWrapEvents;
+import jdk.jfr.EventType;
+
+/**
+ * {@link WeakWrapEvents.Sink} emitting Java Flight Recorder events, picked up through the service file.
+ * Every method checks {@link EventType#isEnabled()} first, so nothing is allocated while the events are off.
+ */
+public class FlightRecorderSink implements WeakWrapEvents.Sink {
+    private final EventType created = EventType.getEventType(WrapperCreatedEvent.class);
+    private final EventType targetCollected = EventType.getEventType(TargetCollectedEvent.class);
+    private final EventType droppedCall = EventType.getEventType(DroppedCallEvent.class);
+    private final EventType slowCall = EventType.getEventType(SlowCallEvent.class);
+
+    @Override
+    public void created(Class<?> wrapperType) {
+        if (created.isEnabled()) {
+            WrapperCreatedEvent event = new WrapperCreatedEvent();
+            event.wrapperType = wrapperType;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void targetCollected(Class<?> wrapperType) {
+        if (targetCollected.isEnabled()) {
+            TargetCollectedEvent event = new TargetCollectedEvent();
+            event.wrapperType = wrapperType;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void droppedCall(Class<?> wrapperType, String method) {
+        if (droppedCall.isEnabled()) {
+            DroppedCallEvent event = new DroppedCallEvent();
+            event.wrapperType = wrapperType;
+            event.method = method;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginCall() {
+        if (!slowCall.isEnabled()) {
+            return null;
+        }
+        SlowCallEvent event = new SlowCallEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endCall(Object call, Class<?> wrapperType, String method) {
+        SlowCallEvent event = (SlowCallEvent) call;
+        event.end();
+        if (event.shouldCommit()) {
+            event.wrapperType = wrapperType;
+            event.method = method;
+            event.commit();
+        }
+    }
+}
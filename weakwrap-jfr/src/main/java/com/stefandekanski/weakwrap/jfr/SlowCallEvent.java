@@ -0,0 +1,25 @@
+package com.stefandekanski.weakwrap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Only committed when the call took longer than the threshold, 10 ms unless the recording settings
+ * override {@code com.stefandekanski.weakwrap.SlowCall#threshold}.
+ */
+@Name("com.stefandekanski.weakwrap.SlowCall")
+@Label("Slow Delegated Call")
+@Description("A call delegated through a wrapper that took longer than the threshold")
+@Category("WeakWrap")
+@Threshold("10 ms")
+class SlowCallEvent extends Event {
+    @Label("Wrapper Type")
+    Class<?> wrapperType;
+
+    @Label("Method")
+    String method;
+}
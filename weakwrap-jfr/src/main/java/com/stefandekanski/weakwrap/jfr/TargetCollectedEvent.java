@@ -0,0 +1,18 @@
+package com.stefandekanski.weakwrap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.stefandekanski.weakwrap.TargetCollected")
+@Label("Target Collected")
+@Description("A wrapper found its target gone (first null get()), later calls are dropped")
+@Category("WeakWrap")
+@StackTrace(false)
+class TargetCollectedEvent extends Event {
+    @Label("Wrapper Type")
+    Class<?> wrapperType;
+}
@@ -0,0 +1,18 @@
+package com.stefandekanski.weakwrap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.stefandekanski.weakwrap.WrapperCreated")
+@Label("Wrapper Created")
+@Description("A generated WeakWrap wrapper was created")
+@Category("WeakWrap")
+@StackTrace(false)
+class WrapperCreatedEvent extends Event {
+    @Label("Wrapper Type")
+    Class<?> wrapperType;
+}
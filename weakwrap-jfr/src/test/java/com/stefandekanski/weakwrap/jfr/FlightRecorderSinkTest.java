@@ -0,0 +1,73 @@
+package com.stefandekanski.weakwrap.jfr;
+
+import com.stefandekanski.weakwrap.runtime.WeakWrapEvents;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class FlightRecorderSinkTest {
+
+    @Test
+    public void testNothingIsStartedWithoutRecording() {
+        assertThat(WeakWrapEvents.beginCall(), nullValue());
+    }
+
+    @Test
+    public void testEventsAreRecorded() throws IOException {
+        Path file = Files.createTempFile("weakwrap", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.stefandekanski.weakwrap.WrapperCreated");
+            recording.enable("com.stefandekanski.weakwrap.TargetCollected");
+            recording.enable("com.stefandekanski.weakwrap.DroppedCall");
+            recording.enable("com.stefandekanski.weakwrap.SlowCall").withThreshold(Duration.ZERO);
+            recording.start();
+
+            WeakWrapEvents.created(String.class);
+            WeakWrapEvents.targetCollected(String.class);
+            WeakWrapEvents.droppedCall(String.class, "length");
+            Object call = WeakWrapEvents.beginCall();
+            WeakWrapEvents.endCall(call, String.class, "trim");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        assertThat(count(events, "com.stefandekanski.weakwrap.WrapperCreated"), is(1));
+        assertThat(count(events, "com.stefandekanski.weakwrap.TargetCollected"), is(1));
+        assertThat(find(events, "com.stefandekanski.weakwrap.DroppedCall").getString("method"), is("length"));
+        assertThat(find(events, "com.stefandekanski.weakwrap.SlowCall").getString("method"), is("trim"));
+    }
+
+    private static int count(List<RecordedEvent> events, String name) {
+        int count = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        throw new AssertionError("No " + name + " event recorded");
+    }
+}
@@ -0,0 +1,13 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+
+/**
+ * Typical callback contract, wrapped for every simulated lifecycle of the load test.
+ */
+@WeakWrap
+public interface ChurnListener {
+    void onEvent(long value);
+
+    long count();
+}
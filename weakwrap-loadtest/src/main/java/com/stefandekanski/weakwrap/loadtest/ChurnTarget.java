@@ -0,0 +1,15 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+class ChurnTarget implements SharedChurnListener {
+    private long count;
+
+    @Override
+    public void onEvent(long value) {
+        count += value & 1;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+}
@@ -0,0 +1,141 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Runs inside the JVM forked by {@link LoadTest} for one collector and one {@link WrapMode}.
+ * <p>
+ * Every operation simulates one lifecycle: create a target, wrap it, call through the wrapper and drop it.
+ * With several wrappers per target, e.g. one view registered with several event sources, the target is wrapped
+ * that many times and called through each wrapper; that is where {@link WrapMode#SHARED} saves a reference per
+ * wrapper. Targets stay reachable for a short window, wrappers for a longer one, so a steady share of calls
+ * goes through wrappers whose target was already collected. Results are printed as
+ * {@code result.<key>=<value>} lines for the launcher to pick up.
+ */
+public class ChurnWorker {
+    static final String RESULT_PREFIX = "result.";
+
+    private final WrapMode mode;
+    private final int liveTargets;
+    private final int liveWrappers;
+    private final int wrappersPerTarget;
+    private final long durationNanos;
+
+    private long sink;
+
+    ChurnWorker(WrapMode mode, int liveTargets, int liveWrappers, int wrappersPerTarget, long durationNanos) {
+        if (wrappersPerTarget < 1) {
+            throw new IllegalArgumentException("wrappersPerTarget must be positive: " + wrappersPerTarget);
+        }
+        this.mode = mode;
+        this.liveTargets = liveTargets;
+        this.liveWrappers = liveWrappers;
+        this.wrappersPerTarget = wrappersPerTarget;
+        this.durationNanos = durationNanos;
+    }
+
+    public static void main(String[] args) {
+        WrapMode mode = WrapMode.fromName(args[0]);
+        int liveTargets = Integer.parseInt(args[1]);
+        int liveWrappers = Integer.parseInt(args[2]);
+        long seconds = Long.parseLong(args[3]);
+        int footprintSamples = Integer.parseInt(args[4]);
+        int wrappersPerTarget = Integer.parseInt(args[5]);
+
+        ChurnWorker worker = new ChurnWorker(mode, liveTargets, liveWrappers, wrappersPerTarget, seconds * 1000000000L);
+        printResult("retainedBytesPerWrapper", String.format(Locale.ROOT, "%.1f", worker.measureRetainedBytesPerWrapper(footprintSamples)));
+        worker.churn(worker.durationNanos / 5);
+        worker.churnAndReport();
+    }
+
+    /**
+     * Heap growth caused by wrapping already live targets, divided by the number of wrappers.
+     * Covers the wrapper and everything only it keeps alive (the reference object in plain mode),
+     * a shared reference is spread over the wrappers of its target.
+     */
+    double measureRetainedBytesPerWrapper(int samples) {
+        ChurnTarget[] targets = new ChurnTarget[(samples + wrappersPerTarget - 1) / wrappersPerTarget];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new ChurnTarget();
+        }
+        long withoutWrappers = usedHeapAfterGc();
+        ChurnListener[] wrappers = new ChurnListener[samples];
+        for (int i = 0; i < samples; i++) {
+            wrappers[i] = mode.wrap(targets[i / wrappersPerTarget]);
+        }
+        long withWrappers = usedHeapAfterGc();
+        sink += targets.length + wrappers.length;
+        return (withWrappers - withoutWrappers) / (double) samples;
+    }
+
+    void churnAndReport() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        long operations = churn(durationNanos);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes(threads) - allocatedBefore;
+
+        double seconds = elapsed / 1e9;
+        printResult("operations", Long.toString(operations));
+        printResult("opsPerSecond", String.format(Locale.ROOT, "%.0f", operations / seconds));
+        if (allocated >= 0) {
+            printResult("allocatedBytesPerOp", String.format(Locale.ROOT, "%.1f", allocated / (double) operations));
+            printResult("allocationMBPerSecond", String.format(Locale.ROOT, "%.1f", allocated / seconds / (1024 * 1024)));
+        }
+        printResult("sink", Long.toString(sink));
+    }
+
+    /**
+     * Returns the number of operations, each one target with all of its wrappers.
+     */
+    long churn(long nanos) {
+        ChurnListener[] targets = new ChurnListener[liveTargets];
+        ChurnListener[] wrappers = new ChurnListener[liveWrappers];
+        long deadline = System.nanoTime() + nanos;
+        long operations = 0;
+        long wrapped = 0;
+        while (System.nanoTime() < deadline) {
+            //check the clock once per batch, the loop body is only a few nanoseconds
+            for (int i = 0; i < 1024; i++, operations++) {
+                ChurnTarget target = new ChurnTarget();
+                for (int w = 0; w < wrappersPerTarget; w++, wrapped++) {
+                    ChurnListener wrapper = mode.wrap(target);
+                    wrapper.onEvent(operations);
+                    sink += wrapper.count();
+                    wrappers[(int) (wrapped % liveWrappers)] = wrapper;
+                }
+                targets[(int) (operations % liveTargets)] = target;
+
+                //an older wrapper, its target is most likely gone already
+                ChurnListener old = wrappers[(int) ((wrapped * 31) % liveWrappers)];
+                if (old != null) {
+                    old.onEvent(operations);
+                }
+            }
+        }
+        return operations;
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void printResult(String key, String value) {
+        System.out.println(RESULT_PREFIX + key + "=" + value);
+    }
+}
@@ -0,0 +1,97 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reference processing numbers pulled out of a GC log.
+ * <p>
+ * Understands unified logging (JDK 9+, see {@link #unifiedLoggingFlags(File)}) for the stop-the-world
+ * collectors (G1, Parallel, Serial) and ZGC, and the {@code -XX:+PrintReferenceGC} output of JDK 8.
+ */
+class GcLogSummary {
+    //G1, Parallel and Serial: "[gc,phases,ref] GC(3) Reference Processing: 1.5ms"
+    private static final Pattern STW_REFERENCE_PROCESSING = Pattern.compile("\\bReference Processing: (\\d+(?:\\.\\d+)?)ms");
+    //ZGC: "[gc,phases] GC(0) Concurrent References Process 1.292ms", the JDK 17 form has a " (ZDriver)" suffix
+    private static final Pattern CONCURRENT_REFERENCE_PROCESSING = Pattern.compile("Concurrent References Process(?: \\(\\w+\\))? (\\d+(?:\\.\\d+)?)ms");
+    private static final Pattern PAUSE = Pattern.compile("\\bPause .*?(\\d+(?:\\.\\d+)?)ms\\s*$");
+    //ZGC: "[gc,ref] GC(0) Weak: 58755 encountered, 58750 discovered, 58750 enqueued"
+    private static final Pattern ZGC_WEAK_COUNTS = Pattern.compile("\\bWeak: (\\d+) encountered, (\\d+) discovered");
+    //G1 and Parallel print the kind on its own line, followed by "Discovered: 85336"
+    private static final Pattern WEAK_KIND_HEADER = Pattern.compile("\\bWeakReference:\\s*$");
+    private static final Pattern DISCOVERED = Pattern.compile("\\bDiscovered: (\\d+)");
+    //JDK 8: "[WeakReference, 123 refs, 0.0001234 secs]"
+    private static final Pattern LEGACY_REFERENCE = Pattern.compile("\\[(Soft|Weak|Final|Phantom|JNI Weak )Reference, (\\d+) refs, (\\d+(?:\\.\\d+)?) secs\\]");
+
+    double pauseReferenceProcessingMillis;
+    double concurrentReferenceProcessingMillis;
+    double totalPauseMillis;
+    int pauses;
+    long weakReferencesDiscovered;
+
+    static List<String> unifiedLoggingFlags(File logFile) {
+        return Collections.singletonList("-Xlog:gc=info,gc+phases=debug,gc+phases+ref=debug,gc+ref=info:file=" + logFile.getAbsolutePath());
+    }
+
+    static List<String> legacyLoggingFlags(File logFile) {
+        return Arrays.asList("-XX:+PrintGCDetails", "-XX:+PrintReferenceGC", "-Xloggc:" + logFile.getAbsolutePath());
+    }
+
+    static GcLogSummary parse(File logFile) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(logFile), Charset.forName("UTF-8"))) {
+            return parse(new BufferedReader(reader));
+        }
+    }
+
+    static GcLogSummary parse(BufferedReader reader) throws IOException {
+        GcLogSummary summary = new GcLogSummary();
+        boolean inWeakKind = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = STW_REFERENCE_PROCESSING.matcher(line);
+            if (matcher.find()) {
+                summary.pauseReferenceProcessingMillis += Double.parseDouble(matcher.group(1));
+            }
+            matcher = CONCURRENT_REFERENCE_PROCESSING.matcher(line);
+            if (matcher.find()) {
+                summary.concurrentReferenceProcessingMillis += Double.parseDouble(matcher.group(1));
+            }
+            matcher = PAUSE.matcher(line);
+            if (matcher.find()) {
+                summary.totalPauseMillis += Double.parseDouble(matcher.group(1));
+                summary.pauses++;
+            }
+            matcher = ZGC_WEAK_COUNTS.matcher(line);
+            if (matcher.find()) {
+                summary.weakReferencesDiscovered += Long.parseLong(matcher.group(2));
+            }
+            if (WEAK_KIND_HEADER.matcher(line).find()) {
+                inWeakKind = true;
+            } else if (inWeakKind) {
+                matcher = DISCOVERED.matcher(line);
+                if (matcher.find()) {
+                    summary.weakReferencesDiscovered += Long.parseLong(matcher.group(1));
+                    inWeakKind = false;
+                }
+            }
+            matcher = LEGACY_REFERENCE.matcher(line);
+            while (matcher.find()) {
+                summary.pauseReferenceProcessingMillis += Double.parseDouble(matcher.group(3)) * 1000;
+                if (matcher.group(1).equals("Weak")) {
+                    summary.weakReferencesDiscovered += Long.parseLong(matcher.group(2));
+                }
+            }
+        }
+        return summary;
+    }
+}
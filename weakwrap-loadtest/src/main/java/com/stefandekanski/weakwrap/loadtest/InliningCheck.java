@@ -0,0 +1,123 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that C2 inlines the generated wrapper methods into their callers.
+ * <p>
+ * Forks {@link InliningWorker} with {@code -XX:+PrintInlining}, collects the decisions about methods of the
+ * generated {@code WeakWrap*} classes and prints one row per method: bytecode size, how often it was inlined and the
+ * reasons when it was not. Exits with status 1 when a wrapper method was rejected for its size, rejections for other
+ * reasons (e.g. a call site that hardly ran) say nothing about the generated code.
+ * <pre>
+ * InliningCheck [--wrapper-prefix WeakWrap]
+ * </pre>
+ */
+public class InliningCheck {
+    //"@ 12   com.example.WeakWrapView::measure (25 bytes)   inline (hot)", JDK 17 prefixes failures with "failed to inline: "
+    private static final String RUNTIME_PACKAGE = "com.stefandekanski.weakwrap.runtime.";
+    private static final Pattern DECISION = Pattern.compile("@\\s*\\d+\\s+([\\w.$]+)::([\\w$<>]+) \\((\\d+) bytes\\)\\s+(.*?)\\s*$");
+
+    static final class Decisions {
+        final int bytecodeSize;
+        int inlined;
+        final List<String> rejections = new ArrayList<>();
+
+        Decisions(int bytecodeSize) {
+            this.bytecodeSize = bytecodeSize;
+        }
+
+        boolean isRejectedForSize() {
+            for (String rejection : rejections) {
+                //"too big", "hot method too big", "callee is too large"
+                if (rejection.contains("too big") || rejection.contains("too large")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String wrapperPrefix = args.length == 2 && args[0].equals("--wrapper-prefix") ? args[1] : "WeakWrap";
+        Map<String, Decisions> decisions = run(wrapperPrefix);
+        System.out.println(String.format(Locale.ROOT, "%-48s %8s %8s  %s", "method", "bytes", "inlined", "rejected"));
+        boolean passed = !decisions.isEmpty();
+        for (Map.Entry<String, Decisions> entry : decisions.entrySet()) {
+            Decisions method = entry.getValue();
+            passed &= !method.isRejectedForSize();
+            System.out.println(String.format(Locale.ROOT, "%-48s %8d %8d  %s", entry.getKey(), method.bytecodeSize,
+                    method.inlined, method.rejections.isEmpty() ? "-" : method.rejections));
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the worker in a forked C2 only JVM and returns the inlining decisions per {@code Class::method}.
+     */
+    static Map<String, Decisions> run(String wrapperPrefix) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        //C2 only, C1 has its own, smaller limits and does not decide what ends up in the hot code
+        command.addAll(Arrays.asList("-XX:-TieredCompilation", "-XX:+UnlockDiagnosticVMOptions", "-XX:+PrintInlining"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(InliningWorker.class.getName());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Decisions> decisions = parse(new InputStreamReader(process.getInputStream(), Charset.forName("UTF-8")), wrapperPrefix);
+        if (process.waitFor() != 0) {
+            throw new IOException("Inlining worker failed with exit code " + process.exitValue());
+        }
+        return decisions;
+    }
+
+    static Map<String, Decisions> parse(Reader printInliningOutput, String wrapperPrefix) throws IOException {
+        Map<String, Decisions> decisions = new TreeMap<>();
+        BufferedReader reader = new BufferedReader(printInliningOutput);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = DECISION.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            String className = matcher.group(1);
+            String simpleName = className.substring(className.lastIndexOf('.') + 1);
+            if (!simpleName.startsWith(wrapperPrefix) || className.startsWith(RUNTIME_PACKAGE) || matcher.group(2).equals("<init>")) {
+                continue;
+            }
+            String key = simpleName + "::" + matcher.group(2);
+            Decisions method = decisions.get(key);
+            if (method == null) {
+                method = new Decisions(Integer.parseInt(matcher.group(3)));
+                decisions.put(key, method);
+            }
+            String reason = matcher.group(4);
+            if (isInlined(reason)) {
+                method.inlined++;
+            } else if (!method.rejections.contains(reason)) {
+                method.rejections.add(reason);
+            }
+        }
+        return decisions;
+    }
+
+    private static boolean isInlined(String reason) {
+        return reason.startsWith("inline") && !reason.contains("fail");
+    }
+}
@@ -0,0 +1,51 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+/**
+ * Runs inside the JVM forked by {@link InliningCheck}. Calls every wrapper type from its own monomorphic call site,
+ * through live and dead wrappers, so the JIT compiles the callers and profiles both paths of the wrapped methods.
+ */
+public class InliningWorker {
+    private static final int ITERATIONS = 2000000;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        ChurnTarget target = new ChurnTarget();
+        WideTarget wideTarget = new WideTarget();
+        WeakWrapChurnListener plain = new WeakWrapChurnListener(target);
+        WeakWrapSharedChurnListener shared = new WeakWrapSharedChurnListener(target);
+        WeakWrapWideListener wide = new WeakWrapWideListener(wideTarget);
+        WeakWrapChurnListener deadPlain = new WeakWrapChurnListener(new ChurnTarget());
+        deadPlain.clearWeakWrapRef();
+        WeakWrapWideListener deadWide = new WeakWrapWideListener(new WideTarget());
+        deadWide.clearWeakWrapRef();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            callPlain(i % 16 == 0 ? deadPlain : plain, i);
+            callShared(shared, i);
+            callWide(i % 16 == 0 ? deadWide : wide, i);
+        }
+        System.out.println(ChurnWorker.RESULT_PREFIX + "sink=" + sink);
+    }
+
+    private static void callPlain(WeakWrapChurnListener listener, long value) {
+        listener.onEvent(value);
+        sink += listener.count();
+    }
+
+    private static void callShared(WeakWrapSharedChurnListener listener, long value) {
+        listener.onEvent(value);
+        sink += listener.count();
+    }
+
+    private static void callWide(WeakWrapWideListener listener, int value) {
+        sink += listener.onSample(value, value + 1, value + 2, value & 7, value & 3, value * 0.5, listener);
+    }
+
+    private static class WideTarget implements WideListener {
+        @Override
+        public long onSample(long timestamp, long sequence, long value, int source, int channel, double weight, Object tag) {
+            return timestamp ^ sequence ^ value ^ source ^ channel;
+        }
+    }
+}
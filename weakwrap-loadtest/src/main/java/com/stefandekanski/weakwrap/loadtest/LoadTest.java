@@ -0,0 +1,162 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * GC and reference processing load test for wrapper churn.
+ * <p>
+ * Forks one JVM per collector and {@link WrapMode}, runs {@link ChurnWorker} in it with GC logging
+ * enabled and prints one report row per run: throughput, allocation, retained bytes per wrapper and
+ * the reference processing time taken from the GC log. Needs nothing but the JDK it runs on.
+ * GC log numbers cover the whole child run, including the explicit collections of the footprint measurement.
+ * {@code --wrappers-per-target} runs every mode once per listed count, wrapping each target that many times.
+ * <pre>
+ * LoadTest [--collectors G1,Parallel,Z] [--modes plain,shared] [--seconds 10] [--heap 512m]
+ *          [--live-targets 100000] [--live-wrappers 400000] [--footprint-samples 1000000]
+ *          [--wrappers-per-target 1,8]
+ * </pre>
+ */
+public class LoadTest {
+    private static final Map<String, String> COLLECTOR_FLAGS = new LinkedHashMap<>();
+
+    static {
+        COLLECTOR_FLAGS.put("G1", "-XX:+UseG1GC");
+        COLLECTOR_FLAGS.put("Parallel", "-XX:+UseParallelGC");
+        COLLECTOR_FLAGS.put("Z", "-XX:+UseZGC");
+        COLLECTOR_FLAGS.put("Serial", "-XX:+UseSerialGC");
+    }
+
+    private List<String> collectors = Arrays.asList("G1", "Parallel", "Z");
+    private List<String> modes = Arrays.asList("plain", "shared");
+    private String seconds = "10";
+    private String heap = "512m";
+    private String liveTargets = "100000";
+    private String liveWrappers = "400000";
+    private String footprintSamples = "1000000";
+    private List<String> wrappersPerTarget = Arrays.asList("1");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTest loadTest = new LoadTest();
+        loadTest.parseArgs(args);
+        loadTest.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--collectors":
+                    collectors = Arrays.asList(value.split(","));
+                    break;
+                case "--modes":
+                    modes = Arrays.asList(value.split(","));
+                    break;
+                case "--seconds":
+                    seconds = value;
+                    break;
+                case "--heap":
+                    heap = value;
+                    break;
+                case "--live-targets":
+                    liveTargets = value;
+                    break;
+                case "--live-wrappers":
+                    liveWrappers = value;
+                    break;
+                case "--footprint-samples":
+                    footprintSamples = value;
+                    break;
+                case "--wrappers-per-target":
+                    wrappersPerTarget = Arrays.asList(value.split(","));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        System.out.println(String.format(Locale.ROOT, "%-9s %-8s %9s %12s %10s %10s %10s %12s %12s %10s %12s",
+                "collector", "mode", "w/target", "ops/s", "B/op", "MB/s", "B/wrapper",
+                "refProc ms", "concRef ms", "pause ms", "weak refs"));
+        for (String collector : collectors) {
+            for (String perTarget : wrappersPerTarget) {
+                for (String mode : modes) {
+                    runOne(collector, WrapMode.fromName(mode), perTarget);
+                }
+            }
+        }
+    }
+
+    private void runOne(String collector, WrapMode mode, String perTarget) throws IOException, InterruptedException {
+        String collectorFlag = COLLECTOR_FLAGS.get(collector);
+        if (collectorFlag == null) {
+            throw new IllegalArgumentException("Unknown collector " + collector + ", use one of " + COLLECTOR_FLAGS.keySet());
+        }
+        File gcLog = File.createTempFile("weakwrap-" + collector + "-", ".log");
+        gcLog.deleteOnExit();
+
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add("-Xms" + heap);
+        command.add("-Xmx" + heap);
+        //ZGC is experimental before JDK 15
+        command.add("-XX:+UnlockExperimentalVMOptions");
+        command.add(collectorFlag);
+        command.addAll(isUnifiedLogging() ? GcLogSummary.unifiedLoggingFlags(gcLog) : GcLogSummary.legacyLoggingFlags(gcLog));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ChurnWorker.class.getName());
+        command.addAll(Arrays.asList(mode.name(), liveTargets, liveWrappers, seconds, footprintSamples, perTarget));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, String> results = readResults(process);
+        if (process.waitFor() != 0) {
+            System.out.println(String.format(Locale.ROOT, "%-9s %-8s %9s failed, the collector is likely not supported by this JVM",
+                    collector, mode.name().toLowerCase(Locale.ROOT), perTarget));
+            return;
+        }
+
+        GcLogSummary gc = GcLogSummary.parse(gcLog);
+        System.out.println(String.format(Locale.ROOT, "%-9s %-8s %9s %12s %10s %10s %10s %12.1f %12.1f %10.1f %12d",
+                collector, mode.name().toLowerCase(Locale.ROOT), perTarget,
+                valueOrDash(results, "opsPerSecond"), valueOrDash(results, "allocatedBytesPerOp"),
+                valueOrDash(results, "allocationMBPerSecond"), valueOrDash(results, "retainedBytesPerWrapper"),
+                gc.pauseReferenceProcessingMillis, gc.concurrentReferenceProcessingMillis,
+                gc.totalPauseMillis, gc.weakReferencesDiscovered));
+    }
+
+    private static Map<String, String> readResults(Process process) throws IOException {
+        Map<String, String> results = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.forName("UTF-8")));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ChurnWorker.RESULT_PREFIX)) {
+                int separator = line.indexOf('=');
+                results.put(line.substring(ChurnWorker.RESULT_PREFIX.length(), separator), line.substring(separator + 1));
+            } else {
+                System.err.println(line);
+            }
+        }
+        return results;
+    }
+
+    private static String valueOrDash(Map<String, String> results, String key) {
+        String value = results.get(key);
+        return value != null ? value : "-";
+    }
+
+    private static boolean isUnifiedLogging() {
+        return !System.getProperty("java.specification.version").startsWith("1.");
+    }
+}
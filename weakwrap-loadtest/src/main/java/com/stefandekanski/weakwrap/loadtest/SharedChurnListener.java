@@ -0,0 +1,10 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+
+/**
+ * {@link ChurnListener} wrapped with a shared per-target reference.
+ */
+@WeakWrap(sharedReference = true)
+public interface SharedChurnListener extends ChurnListener {
+}
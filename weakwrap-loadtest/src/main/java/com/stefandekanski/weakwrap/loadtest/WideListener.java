@@ -0,0 +1,12 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+
+/**
+ * Callback with many parameters and every mode that adds work on the dead target path, the wrapper
+ * {@link InliningCheck} is most likely to find too big to inline.
+ */
+@WeakWrap(deadTargetLatch = true, flightRecorderEvents = true)
+public interface WideListener {
+    long onSample(long timestamp, long sequence, long value, int source, int channel, double weight, Object tag);
+}
@@ -0,0 +1,27 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import java.util.Locale;
+
+/**
+ * Generation modes compared by the load test. Every mode wraps the same {@link ChurnListener} contract.
+ */
+enum WrapMode {
+    PLAIN {
+        @Override
+        ChurnListener wrap(ChurnTarget target) {
+            return new WeakWrapChurnListener(target);
+        }
+    },
+    SHARED {
+        @Override
+        ChurnListener wrap(ChurnTarget target) {
+            return new WeakWrapSharedChurnListener(target);
+        }
+    };
+
+    abstract ChurnListener wrap(ChurnTarget target);
+
+    static WrapMode fromName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
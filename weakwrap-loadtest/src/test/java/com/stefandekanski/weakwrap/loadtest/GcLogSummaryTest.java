@@ -0,0 +1,67 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class GcLogSummaryTest {
+
+    @Test
+    public void testG1Log() throws IOException {
+        GcLogSummary summary = parse(
+                "[0.086s][debug][gc,ref       ] GC(0) Skipped phase 1 of Reference Processing: no references",
+                "[0.088s][debug][gc,phases    ] GC(0)     Reference Processing: 0.7ms",
+                "[0.088s][debug][gc,phases,ref] GC(0)       WeakReference:",
+                "[0.088s][debug][gc,phases,ref] GC(0)         Discovered: 32763",
+                "[0.088s][debug][gc,phases,ref] GC(0)         Cleared: 0",
+                "[0.088s][debug][gc,phases,ref] GC(0)       FinalReference:",
+                "[0.088s][debug][gc,phases,ref] GC(0)         Discovered: 5",
+                "[0.088s][info ][gc           ] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 4M->4M(96M) 15.524ms",
+                "[0.171s][debug][gc,phases    ] GC(1)     Reference Processing: 1.0ms",
+                "[0.171s][info ][gc           ] GC(1) Pause Young (Normal) (G1 Evacuation Pause) 7M->6M(96M) 19.476ms");
+
+        assertEquals(1.7, summary.pauseReferenceProcessingMillis, 1e-9);
+        assertEquals(35.0, summary.totalPauseMillis, 1e-9);
+        assertThat(summary.pauses, is(2));
+        assertThat(summary.weakReferencesDiscovered, is(32763L));
+    }
+
+    @Test
+    public void testZgcLog() throws IOException {
+        GcLogSummary summary = parse(
+                "[0.189s][info ][gc,phases] GC(0) Pause Mark Start 0.010ms",
+                "[0.216s][debug][gc,phases] GC(0) Concurrent References Process (ZDriver) 1.292ms",
+                "[0.217s][info ][gc,phases] GC(0) Concurrent Process Non-Strong References 1.805ms",
+                "[0.218s][debug][gc,phases] GC(1) Concurrent References Process 0.708ms",
+                "[0.256s][info ][gc,ref   ] GC(0) Weak: 58755 encountered, 58750 discovered, 58750 enqueued");
+
+        assertEquals(0.0, summary.pauseReferenceProcessingMillis, 1e-9);
+        assertEquals(2.0, summary.concurrentReferenceProcessingMillis, 1e-9);
+        assertThat(summary.pauses, is(1));
+        assertThat(summary.weakReferencesDiscovered, is(58750L));
+    }
+
+    @Test
+    public void testLegacyLog() throws IOException {
+        GcLogSummary summary = parse(
+                "0.150: [GC (Allocation Failure) 0.150: [SoftReference, 0 refs, 0.0000100 secs]0.150: "
+                        + "[WeakReference, 1200 refs, 0.0005000 secs]0.151: [FinalReference, 3 refs, 0.0000400 secs]");
+
+        assertEquals(0.55, summary.pauseReferenceProcessingMillis, 1e-9);
+        assertThat(summary.weakReferencesDiscovered, is(1200L));
+    }
+
+    private static GcLogSummary parse(String... lines) throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (String line : lines) {
+            log.append(line).append('\n');
+        }
+        return GcLogSummary.parse(new BufferedReader(new StringReader(log.toString())));
+    }
+}
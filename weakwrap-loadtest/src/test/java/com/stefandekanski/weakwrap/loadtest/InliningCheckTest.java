@@ -0,0 +1,57 @@
+package com.stefandekanski.weakwrap.loadtest;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class InliningCheckTest {
+
+    @Test
+    public void testParse() throws IOException {
+        Map<String, InliningCheck.Decisions> decisions = parse(
+                "                 !  @ 28   com.example.WeakWrapView::measure (88 bytes)   inline (hot)",
+                "                    @ 28   com.example.WeakWrapView::measure (88 bytes)   inline (hot)",
+                "                    @ 9   com.example.WeakWrapView::label (412 bytes)   hot method too big",
+                "                    @ 9   com.example.WeakWrapView::label (412 bytes)   failed to inline: hot method too big",
+                "                    @ 3   com.example.WeakWrapView::clearWeakWrapRef (8 bytes)   executed < MinInliningThreshold times",
+                "                    @ 41   com.example.WeakWrapView::<init> (22 bytes)   inline (hot)",
+                "                    @ 5   com.stefandekanski.weakwrap.runtime.WeakWrapEvents::droppedCall (11 bytes)   too big",
+                "                    @ 17   com.example.ViewImpl::measure (13 bytes)   inline (hot)");
+
+        assertThat(decisions.keySet().toString(), is("[WeakWrapView::clearWeakWrapRef, WeakWrapView::label, WeakWrapView::measure]"));
+        InliningCheck.Decisions measure = decisions.get("WeakWrapView::measure");
+        assertThat(measure.bytecodeSize, is(88));
+        assertThat(measure.inlined, is(2));
+        assertThat(measure.isRejectedForSize(), is(false));
+        InliningCheck.Decisions label = decisions.get("WeakWrapView::label");
+        assertThat(label.rejections, is(Arrays.asList("hot method too big", "failed to inline: hot method too big")));
+        assertThat(label.isRejectedForSize(), is(true));
+        assertThat(decisions.get("WeakWrapView::clearWeakWrapRef").isRejectedForSize(), is(false));
+    }
+
+    @Test
+    public void testGeneratedWrappersAreInlined() throws IOException, InterruptedException {
+        Map<String, InliningCheck.Decisions> decisions = InliningCheck.run("WeakWrap");
+
+        for (String method : Arrays.asList("WeakWrapChurnListener::onEvent", "WeakWrapSharedChurnListener::count",
+                "WeakWrapWideListener::onSample")) {
+            InliningCheck.Decisions decision = decisions.get(method);
+            assertThat(method + " " + decisions.keySet(), decision != null, is(true));
+            assertThat(method + " " + decision.rejections, decision.inlined > 0 && !decision.isRejectedForSize(), is(true));
+        }
+    }
+
+    private static Map<String, InliningCheck.Decisions> parse(String... lines) throws IOException {
+        StringBuilder output = new StringBuilder();
+        for (String line : lines) {
+            output.append(line).append('\n');
+        }
+        return InliningCheck.parse(new StringReader(output.toString()), "WeakWrap");
+    }
+}
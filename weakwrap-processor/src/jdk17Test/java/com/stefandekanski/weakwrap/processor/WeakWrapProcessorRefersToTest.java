@@ -0,0 +1,75 @@
+package com.stefandekanski.weakwrap.processor;
+
+import com.google.common.base.Joiner;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+//runs on JDK 17, the source version the processor sees is at least 16 so Reference.refersTo is used
+public class WeakWrapProcessorRefersToTest {
+
+    @Test
+    public void testDeadTargetLatchUsesRefersTo() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.LatchedView", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.anotation.WeakWrap;",
+                "@WeakWrap(deadTargetLatch = true)",
+                "interface LatchedView {",
+                "   int measure(int width);",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapLatchedView", Joiner.on('\n').join(
+                "package test;",
+                "import java.lang.Object;",
+                "import java.lang.String;",
+                "import java.lang.ref.WeakReference;",
+                "",
+                "public class WeakWrapLatchedView implements LatchedView {",
+                "   private final WeakReference<LatchedView> weakWrap;",
+                "   private boolean targetDead;",
+                "   public WeakWrapLatchedView(LatchedView latchedView) {",
+                "       weakWrap = new WeakReference<>(latchedView);",
+                "   }",
+                latchedMethod("int", "hashCode", "", "", "0"),
+                //JDK 17 keeps the parameter names of java.lang.Object
+                latchedMethod("boolean", "equals", "Object obj", "obj", "false"),
+                latchedMethod("String", "toString", "", "", "null"),
+                latchedMethod("int", "measure", "int width", "width", "0"),
+                "public void clearWeakWrapRef() {",
+                "    weakWrap.clear();",
+                "}",
+                "private void targetGone() {",
+                "    targetDead = true;",
+                "}",
+                "public boolean isTargetAlive() {",
+                "    return !targetDead && !weakWrap.refersTo(null);",
+                "}",
+                "public boolean wraps(LatchedView candidate) {",
+                "    return weakWrap.refersTo(candidate);",
+                "}",
+                "}"
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new WeakWrapProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    private static String latchedMethod(String returnType, String name, String params, String args, String defaultValue) {
+        return Joiner.on('\n').join(
+                "public " + returnType + " " + name + "(" + params + ") {",
+                "    LatchedView original = targetDead ? null : weakWrap.get();",
+                "    if(original != null) {",
+                "        return original." + name + "(" + args + ");",
+                "    }",
+                "    targetGone();",
+                "    return " + defaultValue + ";",
+                "}");
+    }
+}
@@ -0,0 +1,112 @@
+package com.stefandekanski.weakwrap.processor;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.stefandekanski.weakwrap.anotation.Memoize;
+import com.stefandekanski.weakwrap.runtime.WeakWrapMemo;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import java.util.List;
+
+/**
+ * Cache field and key of one {@link Memoize} method: no parameters use {@link WeakWrapMemo.Single},
+ * one integral or {@code long} parameter use the primitive keyed caches, anything else {@link WeakWrapMemo.Keyed}.
+ * A key combining several arguments is built once per call into a local variable, the lookup and the store share it.
+ */
+class MemoizedMethod {
+    final String fieldName;
+    final ClassName cacheType;
+    final int maxSize;
+    private final CodeBlock key;
+    private final boolean composedKey;
+
+    private MemoizedMethod(String fieldName, ClassName cacheType, int maxSize, CodeBlock key) {
+        this(fieldName, cacheType, maxSize, key, false);
+    }
+
+    private MemoizedMethod(String fieldName, ClassName cacheType, int maxSize, CodeBlock key, boolean composedKey) {
+        this.fieldName = fieldName;
+        this.cacheType = cacheType;
+        this.maxSize = maxSize;
+        this.key = key;
+        this.composedKey = composedKey;
+    }
+
+    static MemoizedMethod of(ExecutableElement method, String fieldName) {
+        int maxSize = method.getAnnotation(Memoize.class).maxSize();
+        List<? extends VariableElement> parameters = method.getParameters();
+        if (parameters.isEmpty()) {
+            return new MemoizedMethod(fieldName, ClassName.get(WeakWrapMemo.Single.class), maxSize, null);
+        }
+        if (parameters.size() == 1) {
+            String name = parameters.get(0).getSimpleName().toString();
+            TypeKind kind = parameters.get(0).asType().getKind();
+            switch (kind) {
+                case INT:
+                case SHORT:
+                case CHAR:
+                case BYTE:
+                    return new MemoizedMethod(fieldName, ClassName.get(WeakWrapMemo.IntKeyed.class), maxSize, codeOf(name));
+                case LONG:
+                    return new MemoizedMethod(fieldName, ClassName.get(WeakWrapMemo.LongKeyed.class), maxSize, codeOf(name));
+                case ARRAY:
+                    return new MemoizedMethod(fieldName, ClassName.get(WeakWrapMemo.Keyed.class), maxSize,
+                            CodeBlock.builder().add("$T.key(($T) " + name + ")", WeakWrapMemo.class, Object.class).build(), true);
+                default:
+                    return new MemoizedMethod(fieldName, ClassName.get(WeakWrapMemo.Keyed.class), maxSize, codeOf(name));
+            }
+        }
+        StringBuilder arguments = new StringBuilder();
+        for (VariableElement parameter : parameters) {
+            if (arguments.length() > 0) {
+                arguments.append(", ");
+            }
+            arguments.append(parameter.getSimpleName());
+        }
+        return new MemoizedMethod(fieldName, ClassName.get(WeakWrapMemo.Keyed.class), maxSize,
+                CodeBlock.builder().add("$T.key(" + arguments + ")", WeakWrapMemo.class).build(), true);
+    }
+
+    boolean isSingle() {
+        return key == null;
+    }
+
+    boolean hasComposedKey() {
+        return composedKey;
+    }
+
+    CodeBlock keyDeclaration() {
+        return CodeBlock.builder().add("$T " + WeakWrapWriter.MEMO_KEY_VAR_NAME + " = $L", Object.class, key).build();
+    }
+
+    CodeBlock newCache() {
+        if (isSingle()) {
+            return CodeBlock.builder().add("new $T()", cacheType).build();
+        }
+        return CodeBlock.builder().add("new $T(" + maxSize + ")", cacheType).build();
+    }
+
+    CodeBlock get() {
+        if (isSingle()) {
+            return codeOf(fieldName + ".get()");
+        }
+        return CodeBlock.builder().add(fieldName + ".get($L)", keyExpression()).build();
+    }
+
+    CodeBlock put(String value) {
+        if (isSingle()) {
+            return codeOf(fieldName + ".put(" + value + ")");
+        }
+        return CodeBlock.builder().add(fieldName + ".put($L, " + value + ")", keyExpression()).build();
+    }
+
+    private CodeBlock keyExpression() {
+        return composedKey ? codeOf(WeakWrapWriter.MEMO_KEY_VAR_NAME) : key;
+    }
+
+    private static CodeBlock codeOf(String code) {
+        return CodeBlock.builder().add(code).build();
+    }
+}
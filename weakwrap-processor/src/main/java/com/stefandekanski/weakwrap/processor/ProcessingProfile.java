@@ -0,0 +1,130 @@
+package com.stefandekanski.weakwrap.processor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timings of one compilation, enabled with {@code -Aweakwrap.profile=<file>} and written as JSON after the last round.
+ * Per annotated type: member resolution (validation and method lookup), spec building, writing through the
+ * {@code Filer}, wrapped method count (the delegating methods, not constructors or helpers) and output size in bytes. Per round: annotated types and total time.
+ */
+class ProcessingProfile {
+    static final String OPTION = "weakwrap.profile";
+
+    private final File output;
+    private final List<TypeProfile> types = new ArrayList<>();
+    private final List<RoundProfile> rounds = new ArrayList<>();
+
+    ProcessingProfile(File output) {
+        this.output = output;
+    }
+
+    static class TypeProfile {
+        final String type;
+        final int round;
+        long memberResolutionNanos;
+        long specBuildingNanos;
+        long filerWritingNanos;
+        int wrappedMethods;
+        long outputBytes;
+
+        TypeProfile(String type, int round) {
+            this.type = type;
+            this.round = round;
+        }
+    }
+
+    private static class RoundProfile {
+        final int round;
+        final int annotatedTypes;
+        final long nanos;
+
+        RoundProfile(int round, int annotatedTypes, long nanos) {
+            this.round = round;
+            this.annotatedTypes = annotatedTypes;
+            this.nanos = nanos;
+        }
+    }
+
+    TypeProfile addType(String type) {
+        TypeProfile profile = new TypeProfile(type, rounds.size() + 1);
+        types.add(profile);
+        return profile;
+    }
+
+    void endRound(int annotatedTypes, long nanos) {
+        rounds.add(new RoundProfile(rounds.size() + 1, annotatedTypes, nanos));
+    }
+
+    void write() throws IOException {
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can not create " + parent);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), Charset.forName("UTF-8"))) {
+            writer.write(toJson());
+        }
+    }
+
+    String toJson() {
+        long totalNanos = 0;
+        for (RoundProfile round : rounds) {
+            totalNanos += round.nanos;
+        }
+        long totalBytes = 0;
+        int totalMethods = 0;
+        for (TypeProfile type : types) {
+            totalBytes += type.outputBytes;
+            totalMethods += type.wrappedMethods;
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"types\": [");
+        for (int i = 0; i < types.size(); i++) {
+            TypeProfile type = types.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"type\": ").append(quote(type.type))
+                    .append(", \"round\": ").append(type.round)
+                    .append(", \"memberResolutionNanos\": ").append(type.memberResolutionNanos)
+                    .append(", \"specBuildingNanos\": ").append(type.specBuildingNanos)
+                    .append(", \"filerWritingNanos\": ").append(type.filerWritingNanos)
+                    .append(", \"wrappedMethods\": ").append(type.wrappedMethods)
+                    .append(", \"outputBytes\": ").append(type.outputBytes)
+                    .append("}");
+        }
+        json.append("\n  ],\n  \"rounds\": [");
+        for (int i = 0; i < rounds.size(); i++) {
+            RoundProfile round = rounds.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"round\": ").append(round.round)
+                    .append(", \"annotatedTypes\": ").append(round.annotatedTypes)
+                    .append(", \"nanos\": ").append(round.nanos)
+                    .append("}");
+        }
+        json.append("\n  ],\n  \"totals\": {")
+                .append("\"rounds\": ").append(rounds.size())
+                .append(", \"annotatedTypes\": ").append(types.size())
+                .append(", \"nanos\": ").append(totalNanos)
+                .append(", \"wrappedMethods\": ").append(totalMethods)
+                .append(", \"outputBytes\": ").append(totalBytes)
+                .append("}\n}\n");
+        return json.toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                quoted.append('\\');
+            }
+            quoted.append(ch);
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.stefandekanski.weakwrap.processor;
+
+import com.squareup.javapoet.TypeName;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import java.util.List;
+
+/**
+ * Detects types shaped like {@code java.util.concurrent.Flow.Subscriber} (or the reactive-streams
+ * {@code Subscriber}): {@code onSubscribe(Subscription)}, {@code onNext(T)}, {@code onError(Throwable)}
+ * and {@code onComplete()}, where the subscription type has {@code request(long)} and {@code cancel()}.
+ */
+class SubscriberShape {
+    static final String ON_SUBSCRIBE = "onSubscribe";
+    static final String ON_NEXT = "onNext";
+    static final String ON_ERROR = "onError";
+    static final String ON_COMPLETE = "onComplete";
+    static final String REQUEST = "request";
+    static final String CANCEL = "cancel";
+
+    final ExecutableElement onSubscribe;
+    final ExecutableElement onNext;
+    final TypeName subscriptionType;
+
+    private SubscriberShape(ExecutableElement onSubscribe, ExecutableElement onNext, TypeName subscriptionType) {
+        this.onSubscribe = onSubscribe;
+        this.onNext = onNext;
+        this.subscriptionType = subscriptionType;
+    }
+
+    static SubscriberShape find(List<? extends ExecutableElement> methods, Elements elemUtil) {
+        ExecutableElement onSubscribe = findVoidMethod(methods, ON_SUBSCRIBE, 1);
+        ExecutableElement onNext = findVoidMethod(methods, ON_NEXT, 1);
+        if (onSubscribe == null || onNext == null
+                || findVoidMethod(methods, ON_ERROR, 1) == null
+                || findVoidMethod(methods, ON_COMPLETE, 0) == null) {
+            return null;
+        }
+        TypeMirror subscriptionType = onSubscribe.getParameters().get(0).asType();
+        if (!isSubscriptionShaped(subscriptionType, elemUtil)) {
+            return null;
+        }
+        return new SubscriberShape(onSubscribe, onNext, TypeName.get(subscriptionType));
+    }
+
+    boolean isOnSubscribe(ExecutableElement method) {
+        return method.equals(onSubscribe);
+    }
+
+    boolean isOnNext(ExecutableElement method) {
+        return method.equals(onNext);
+    }
+
+    private static ExecutableElement findVoidMethod(List<? extends ExecutableElement> methods, String name, int paramCount) {
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getParameters().size() == paramCount
+                    && method.getReturnType().getKind().equals(TypeKind.VOID)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSubscriptionShaped(TypeMirror type, Elements elemUtil) {
+        if (!type.getKind().equals(TypeKind.DECLARED)) {
+            return false;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        boolean hasRequest = false;
+        boolean hasCancel = false;
+        for (ExecutableElement method : ElementFilter.methodsIn(elemUtil.getAllMembers((TypeElement) element))) {
+            List<? extends VariableElement> params = method.getParameters();
+            if (method.getSimpleName().contentEquals(REQUEST) && params.size() == 1
+                    && params.get(0).asType().getKind().equals(TypeKind.LONG)) {
+                hasRequest = true;
+            } else if (method.getSimpleName().contentEquals(CANCEL) && params.isEmpty()) {
+                hasCancel = true;
+            }
+        }
+        return hasRequest && hasCancel;
+    }
+}
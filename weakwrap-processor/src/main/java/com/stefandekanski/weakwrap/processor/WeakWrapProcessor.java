@@ -0,0 +1,114 @@
+package com.stefandekanski.weakwrap.processor;
+
+import com.google.auto.service.AutoService;
+import com.squareup.javapoet.JavaFile;
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+
+@AutoService(Processor.class)
+public class WeakWrapProcessor extends AbstractProcessor {
+
+    private Filer filer;
+    private Messager messager;
+    private Elements elementsUtil;
+    private Types typeUtil;
+    private ProcessingProfile profile;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+        elementsUtil = processingEnv.getElementUtils();
+        typeUtil = processingEnv.getTypeUtils();
+        String profilePath = processingEnv.getOptions().get(ProcessingProfile.OPTION);
+        if (profilePath != null) {
+            profile = new ProcessingProfile(new File(profilePath));
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(ProcessingProfile.OPTION);
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(WeakWrap.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long roundStart = System.nanoTime();
+        Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(WeakWrap.class);
+        try {
+            for (Element e : elements) {
+                TypeElement typeElement = (TypeElement) e;
+                if (profile != null) {
+                    writeProfiled(typeElement);
+                } else {
+                    WeakWrapWriter weakWrapWriter = new WeakWrapWriter(typeElement, elementsUtil, typeUtil, processingEnv.getSourceVersion());
+                    weakWrapWriter.writeWeakWrapperTo(filer);
+                }
+            }
+        } catch (IOException | WeakWrapWriter.WeakWrapValidationException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+        }
+        if (profile != null) {
+            profile.endRound(elements.size(), System.nanoTime() - roundStart);
+            if (roundEnv.processingOver()) {
+                writeProfile();
+            }
+        }
+        return true;
+    }
+
+    private void writeProfiled(TypeElement typeElement) throws IOException, WeakWrapWriter.WeakWrapValidationException {
+        ProcessingProfile.TypeProfile typeProfile = profile.addType(typeElement.getQualifiedName().toString());
+        long start = System.nanoTime();
+        WeakWrapWriter weakWrapWriter = new WeakWrapWriter(typeElement, elementsUtil, typeUtil, processingEnv.getSourceVersion());
+        long resolved = System.nanoTime();
+        JavaFile javaFile = weakWrapWriter.createWeakWrapper();
+        long built = System.nanoTime();
+        //rendered up front to measure the output, JavaFile.writeTo(Filer) would render while writing
+        String source = javaFile.toString();
+        String qualifiedName = javaFile.packageName.isEmpty() ? javaFile.typeSpec.name : javaFile.packageName + "." + javaFile.typeSpec.name;
+        JavaFileObject sourceFile = filer.createSourceFile(qualifiedName);
+        try (Writer writer = sourceFile.openWriter()) {
+            writer.write(source);
+        }
+        long written = System.nanoTime();
+        typeProfile.memberResolutionNanos = resolved - start;
+        typeProfile.specBuildingNanos = built - resolved;
+        typeProfile.filerWritingNanos = written - built;
+        typeProfile.wrappedMethods = weakWrapWriter.wrappedMethodCount();
+        typeProfile.outputBytes = source.getBytes(Charset.forName("UTF-8")).length;
+    }
+
+    private void writeProfile() {
+        try {
+            profile.write();
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Could not write the WeakWrap processing profile: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,1071 @@
+package com.stefandekanski.weakwrap.processor;
+
+import com.google.common.base.Joiner;
+import com.squareup.javapoet.*;
+import com.stefandekanski.weakwrap.anotation.Memoize;
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+import com.stefandekanski.weakwrap.runtime.WeakWrapEvents;
+import com.stefandekanski.weakwrap.runtime.WeakWrapMemo;
+import com.stefandekanski.weakwrap.runtime.WeakWrapPool;
+import com.stefandekanski.weakwrap.runtime.WeakWrapReaper;
+import com.stefandekanski.weakwrap.runtime.WeakWrapReferences;
+import com.stefandekanski.weakwrap.runtime.WeakWrapReplay;
+import com.stefandekanski.weakwrap.runtime.WeakWrapScope;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+public class WeakWrapWriter {
+    public static final String TYPE_VALIDATION_MSG = "Only Top level and static inner classes are supported!";
+    public static final String REQUEST_BATCH_SIZE_VALIDATION_MSG = "requestBatchSize must be positive and is only supported on Subscriber shaped types!";
+    public static final String SUBSCRIBER_MODE_VALIDATION_MSG = " is not supported on Subscriber shaped types!";
+    public static final String MODE_COMBINATION_VALIDATION_MSG = " can not be combined with ";
+    public static final String MEMOIZE_VALIDATION_MSG = "@Memoize is only supported on methods with a result and a positive maxSize!";
+
+    public abstract static class WeakWrapValidationException extends Exception {
+        public WeakWrapValidationException(String msg) {
+            super(msg);
+        }
+    }
+
+    public static class TypeValidationException extends WeakWrapValidationException {
+        public TypeValidationException() {
+            super(TYPE_VALIDATION_MSG);
+        }
+    }
+
+    public static class RequestBatchSizeValidationException extends WeakWrapValidationException {
+        public RequestBatchSizeValidationException() {
+            super(REQUEST_BATCH_SIZE_VALIDATION_MSG);
+        }
+    }
+
+    public static class SubscriberModeValidationException extends WeakWrapValidationException {
+        public SubscriberModeValidationException(String attributeName) {
+            super(attributeName + SUBSCRIBER_MODE_VALIDATION_MSG);
+        }
+    }
+
+    public static class ModeCombinationValidationException extends WeakWrapValidationException {
+        public ModeCombinationValidationException(String attributeName, String otherAttributeName) {
+            super(attributeName + MODE_COMBINATION_VALIDATION_MSG + otherAttributeName + "!");
+        }
+    }
+
+    public static class MemoizeValidationException extends WeakWrapValidationException {
+        public MemoizeValidationException() {
+            super(MEMOIZE_VALIDATION_MSG);
+        }
+    }
+
+    public static final String WEAK_REFERENCE_FIELD_NAME = "weakWrap";
+    public static final String LOCAL_VAR_NAME = "original";
+    public static final String SUBSCRIBER_REFERENCE_CLASS_NAME = "SubscriberReference";
+    public static final String SUBSCRIPTION_FIELD_NAME = "subscription";
+    public static final String REQUEST_BATCH_SIZE_FIELD_NAME = "REQUEST_BATCH_SIZE";
+    public static final String REPLENISH_THRESHOLD_FIELD_NAME = "REPLENISH_THRESHOLD";
+    public static final String DELIVERED_FIELD_NAME = "delivered";
+    public static final String ON_COLLECTED_METHOD_NAME = "onCollected";
+    public static final String CANCEL_SUBSCRIPTION_METHOD_NAME = "cancelSubscription";
+    public static final String SET_SUBSCRIPTION_METHOD_NAME = "setSubscription";
+    public static final String REQUEST_METHOD_NAME = "request";
+    public static final String CANCELLED_FIELD_NAME = "cancelled";
+    public static final String REPLAY_FIELD_NAME = "replay";
+    public static final String ATTACH_METHOD_NAME = "attach";
+    public static final String TARGET_COLLECTED_REPORTED_FIELD_NAME = "targetCollectedReported";
+    public static final String TARGET_GONE_METHOD_NAME = "targetGone";
+    public static final String SLOW_CALL_VAR_NAME = "slowCall";
+    public static final String MEMO_FIELD_SUFFIX = "Memo";
+    public static final String MEMOIZED_VAR_NAME = "memoized";
+    public static final String MEMO_KEY_VAR_NAME = "memoKey";
+    public static final String RESULT_VAR_NAME = "result";
+    public static final String INVALIDATE_MEMOIZED_METHOD_NAME = "invalidateMemoized";
+    public static final String SCOPE_FIELD_NAME = "scope";
+    public static final String SCOPE_EPOCH_FIELD_NAME = "scopeEpoch";
+    public static final String SCOPE_PARAM_NAME = "weakWrapScope";
+    public static final String TARGET_DEAD_FIELD_NAME = "targetDead";
+    public static final String IS_TARGET_ALIVE_METHOD_NAME = "isTargetAlive";
+    public static final String WRAPS_METHOD_NAME = "wraps";
+    public static final String REFERS_TO_METHOD_NAME = "refersTo";
+    public static final String REBIND_METHOD_NAME = "rebind";
+    public static final String RELEASE_METHOD_NAME = "release";
+    public static final String WEAK_WRAP_TARGET_METHOD_NAME = "weakWrapTarget";
+
+    private final String originalClassName;
+    private final String wrapClassName;
+    private final String packageName;
+
+    private final TypeElement typeElement;
+    private final Elements elemUtil;
+    private final Types typeUtil;
+
+    private final SubscriberShape subscriberShape;
+    private final long requestBatchSize;
+    private final boolean sharedReference;
+    private final boolean reattachable;
+    private final boolean flightRecorderEvents;
+    private final boolean scoped;
+    private final boolean deadTargetLatch;
+    private final boolean rebindable;
+    private final boolean refersToAvailable;
+    private final boolean extensible;
+    private final TypeElement parentType;
+    private final Map<ExecutableElement, Integer> replaySlots;
+    private final Map<ExecutableElement, MemoizedMethod> memoizedMethods;
+
+    public WeakWrapWriter(TypeElement typeElement, Elements elemUtil, Types typeUtil, SourceVersion sourceVersion) throws WeakWrapValidationException {
+        checkIsValidType(typeElement);
+        this.typeElement = typeElement;
+        this.elemUtil = elemUtil;
+        this.typeUtil = typeUtil;
+        this.packageName = extractPackageName(elemUtil, typeElement);
+        this.originalClassName = extractClassName(packageName, typeElement);
+        WeakWrap weakWrap = typeElement.getAnnotation(WeakWrap.class);
+        this.wrapClassName = weakWrap.classNamePrefix() + originalClassName.replaceAll("\\.", "");
+        this.subscriberShape = SubscriberShape.find(getMethodList(), elemUtil);
+        this.requestBatchSize = weakWrap.requestBatchSize();
+        this.sharedReference = weakWrap.sharedReference();
+        this.reattachable = weakWrap.reattachable();
+        this.flightRecorderEvents = weakWrap.flightRecorderEvents();
+        this.scoped = weakWrap.scoped();
+        this.deadTargetLatch = weakWrap.deadTargetLatch();
+        this.rebindable = weakWrap.rebindable();
+        this.refersToAvailable = isRefersToAvailable(sourceVersion);
+        this.replaySlots = reattachable ? assignReplaySlots() : Collections.<ExecutableElement, Integer>emptyMap();
+        this.memoizedMethods = findMemoizedMethods();
+        this.extensible = isExtensible(typeElement);
+        this.parentType = extensible ? findExtensibleParent() : null;
+        checkIsValidRequestBatchSize();
+        checkIsNotSubscriber("sharedReference", sharedReference);
+        checkIsNotSubscriber("reattachable", reattachable);
+        checkIsNotCombined("scoped", scoped, "reattachable", reattachable);
+        checkIsNotSubscriber("rebindable", rebindable);
+        checkIsNotCombined("rebindable", rebindable, "reattachable", reattachable);
+        checkIsNotCombined("rebindable", rebindable, "scoped", scoped);
+    }
+
+    public void writeWeakWrapperTo(Filer filer) throws IOException {
+        createWeakWrapper().writeTo(filer);
+    }
+
+    public JavaFile createWeakWrapper() {
+        if (hasParentWrapper()) {
+            return createChildWrapper();
+        }
+        MethodSpec constructor = createConstructor();
+        FieldSpec weakWrapField = createWeakWrapField();
+        List<MethodSpec> wrappedMethods = createWrappedMethods();
+        MethodSpec clearWeakWrapRefMethod = clearWeakWrapRefMethod();
+
+        TypeSpec.Builder builder = TypeSpec.classBuilder(wrapClassName)
+                .addModifiers(Modifier.PUBLIC)
+                .addMethod(constructor)
+                .addField(weakWrapField)
+                .addMethods(wrappedMethods)
+                .addMethod(clearWeakWrapRefMethod);
+
+        if (isOriginalElementClass()) {
+            builder.superclass(fullOriginalClassName());
+            builder.addSuperinterfaces(getSuperInterfaces());
+        } else {
+            builder.addSuperinterface(fullOriginalClassName());
+        }
+
+        if (isSubscriber()) {
+            addSubscriberMembers(builder);
+        }
+
+        if (reattachable) {
+            builder.addField(createReplayField());
+            builder.addMethod(createAttachMethod());
+        }
+
+        if (rebindable) {
+            builder.addSuperinterface(ParameterizedTypeName.get(ClassName.get(WeakWrapPool.Rebindable.class), fullOriginalClassName()));
+            builder.addMethod(createUnboundConstructor());
+            builder.addMethod(createRebindMethod());
+            builder.addMethod(createReleaseMethod());
+        }
+
+        if (flightRecorderEvents) {
+            builder.addField(TypeName.BOOLEAN, TARGET_COLLECTED_REPORTED_FIELD_NAME, Modifier.PRIVATE);
+        }
+
+        if (hasTargetGoneWork()) {
+            builder.addMethod(createTargetGoneMethod());
+        }
+
+        if (deadTargetLatch) {
+            //volatile only when attach can bring the target back
+            FieldSpec.Builder latchField = FieldSpec.builder(TypeName.BOOLEAN, TARGET_DEAD_FIELD_NAME, Modifier.PRIVATE);
+            if (reattachable) {
+                latchField.addModifiers(Modifier.VOLATILE);
+            }
+            builder.addField(latchField.build());
+            builder.addMethod(createIsTargetAliveMethod());
+            builder.addMethod(createWrapsMethod());
+        }
+
+        if (scoped) {
+            builder.addField(WeakWrapScope.class, SCOPE_FIELD_NAME, Modifier.PRIVATE, Modifier.FINAL);
+            builder.addField(TypeName.INT, SCOPE_EPOCH_FIELD_NAME, Modifier.PRIVATE, Modifier.FINAL);
+        }
+
+        if (hasMemoizedMethods()) {
+            builder.addFields(createMemoFields());
+            builder.addMethod(createInvalidateMemoizedMethod());
+        }
+
+        //subinterfaces may be annotated in a later compilation, every extensible wrapper has the accessor
+        if (extensible) {
+            builder.addMethod(createWeakWrapTargetMethod());
+        }
+
+        return JavaFile.builder(packageName, builder.build()).build();
+    }
+
+    //reuses the wrapper of the annotated parent interface, only methods the parent does not have are generated
+    private JavaFile createChildWrapper() {
+        String varName = firstSmallLetterWithoutDots(originalClassName);
+        MethodSpec constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(fullOriginalClassName(), varName)
+                .addStatement("super(" + varName + ")")
+                .build();
+
+        TypeSpec.Builder builder = TypeSpec.classBuilder(wrapClassName)
+                .addModifiers(Modifier.PUBLIC)
+                .superclass(wrapClassNameOf(parentType))
+                .addSuperinterface(fullOriginalClassName())
+                .addMethod(constructor)
+                .addMethods(createWrappedMethods());
+
+        return JavaFile.builder(packageName, builder.build()).build();
+    }
+
+    private List<? extends TypeName> getSuperInterfaces() {
+        List<TypeName> typeNames = new ArrayList<>(typeElement.getInterfaces().size());
+        for (TypeMirror mirror : typeElement.getInterfaces()) {
+            typeNames.add(TypeName.get(mirror));
+        }
+        return typeNames;
+    }
+
+    private void checkIsValidType(TypeElement typeElement) throws TypeValidationException {
+        NestingKind nestingKind = typeElement.getNestingKind();
+        boolean isTopLevel = nestingKind.equals(NestingKind.TOP_LEVEL);
+        boolean isMemberKind = nestingKind.equals(NestingKind.MEMBER);
+        boolean isStatic = typeElement.getModifiers().contains(Modifier.STATIC);
+
+        //only allow topLevel and memberStatic
+        if (!(isTopLevel || (isMemberKind && isStatic))) {
+            throw new TypeValidationException();
+        }
+    }
+
+    private void checkIsValidRequestBatchSize() throws RequestBatchSizeValidationException {
+        if (requestBatchSize < 0 || (requestBatchSize > 0 && !isSubscriber())) {
+            throw new RequestBatchSizeValidationException();
+        }
+    }
+
+    private void checkIsNotSubscriber(String attributeName, boolean attributeValue) throws SubscriberModeValidationException {
+        if (attributeValue && isSubscriber()) {
+            throw new SubscriberModeValidationException(attributeName);
+        }
+    }
+
+    private void checkIsNotCombined(String attributeName, boolean attributeValue,
+                                    String otherAttributeName, boolean otherAttributeValue) throws ModeCombinationValidationException {
+        if (attributeValue && otherAttributeValue) {
+            throw new ModeCombinationValidationException(attributeName, otherAttributeName);
+        }
+    }
+
+    //the field is swapped instead of cleared when the reference may be shared with other wrappers or re-attached
+    private boolean isWeakWrapFieldReassignable() {
+        return sharedReference || reattachable || rebindable;
+    }
+
+    //only void methods without checked exceptions can be deferred until a target is attached
+    private Map<ExecutableElement, Integer> assignReplaySlots() {
+        Map<ExecutableElement, Integer> slots = new HashMap<>();
+        for (ExecutableElement method : getMethodList()) {
+            if (!isReturnStatementNeeded(method) && method.getThrownTypes().isEmpty()) {
+                slots.put(method, slots.size());
+            }
+        }
+        return slots;
+    }
+
+    private boolean isReplayed(ExecutableElement method) {
+        return replaySlots.containsKey(method);
+    }
+
+    //one cache field per memoized method, overloads get a numbered field
+    private Map<ExecutableElement, MemoizedMethod> findMemoizedMethods() throws MemoizeValidationException {
+        Map<ExecutableElement, MemoizedMethod> memoized = new LinkedHashMap<>();
+        Set<String> fieldNames = new HashSet<>();
+        for (ExecutableElement method : getMethodList()) {
+            Memoize memoize = method.getAnnotation(Memoize.class);
+            if (memoize == null) {
+                continue;
+            }
+            if (!isReturnStatementNeeded(method) || memoize.maxSize() < 1) {
+                throw new MemoizeValidationException();
+            }
+            String fieldName = copyMethodName(method) + MEMO_FIELD_SUFFIX;
+            for (int i = 2; !fieldNames.add(fieldName); i++) {
+                fieldName = copyMethodName(method) + MEMO_FIELD_SUFFIX + i;
+            }
+            memoized.put(method, MemoizedMethod.of(method, fieldName));
+        }
+        return memoized;
+    }
+
+    //only plain interface wrappers can be extended by the wrappers of annotated subinterfaces
+    private boolean isExtensible(TypeElement type) {
+        WeakWrap weakWrap = type.getAnnotation(WeakWrap.class);
+        if (weakWrap == null || type.getKind() != ElementKind.INTERFACE || !type.getTypeParameters().isEmpty()) {
+            return false;
+        }
+        if (weakWrap.requestBatchSize() != 0 || weakWrap.sharedReference() || weakWrap.reattachable() || weakWrap.flightRecorderEvents()
+                || weakWrap.scoped() || weakWrap.deadTargetLatch() || weakWrap.rebindable()) {
+            return false;
+        }
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elemUtil.getAllMembers(type));
+        for (ExecutableElement method : methods) {
+            if (method.getAnnotation(Memoize.class) != null) {
+                return false;
+            }
+        }
+        return SubscriberShape.find(methods, elemUtil) == null;
+    }
+
+    private TypeElement findExtensibleParent() {
+        for (TypeMirror superInterface : typeElement.getInterfaces()) {
+            TypeElement parent = (TypeElement) typeUtil.asElement(superInterface);
+            if (isExtensible(parent)) {
+                return parent;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasParentWrapper() {
+        return parentType != null;
+    }
+
+    private ClassName wrapClassNameOf(TypeElement type) {
+        String typePackageName = extractPackageName(elemUtil, type);
+        String typeClassName = extractClassName(typePackageName, type);
+        return ClassName.get(typePackageName, type.getAnnotation(WeakWrap.class).classNamePrefix() + typeClassName.replaceAll("\\.", ""));
+    }
+
+    private boolean hasMemoizedMethods() {
+        return !memoizedMethods.isEmpty();
+    }
+
+    private boolean isSubscriber() {
+        return subscriberShape != null;
+    }
+
+    //Reference.refersTo is Java 16+, RELEASE_16 is not known to older compilers
+    private boolean isRefersToAvailable(SourceVersion sourceVersion) {
+        if (sourceVersion.ordinal() < 16) {
+            return false;
+        }
+        TypeElement reference = elemUtil.getTypeElement(Reference.class.getCanonicalName());
+        for (ExecutableElement method : ElementFilter.methodsIn(reference.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(REFERS_TO_METHOD_NAME)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRequestingBatches() {
+        return requestBatchSize > 0;
+    }
+
+    private String extractPackageName(Elements elemUtil, TypeElement typeElement) {
+        return elemUtil.getPackageOf(typeElement).getQualifiedName().toString();
+    }
+
+    private String extractClassName(String packageName, TypeElement typeElement) {
+        String fullClassName = typeElement.getQualifiedName().toString();
+        if (packageName.length() == 0) {
+            return fullClassName;
+        }
+        return fullClassName.substring(packageName.length() + 1);
+    }
+
+    private boolean isOriginalElementClass() {
+        return typeElement.getKind().isClass();
+    }
+
+    private MethodSpec createConstructor() {
+        String varName = firstSmallLetterWithoutDots(originalClassName);
+        MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(fullOriginalClassName(), varName)
+                .addStatement(WEAK_REFERENCE_FIELD_NAME + " = $L", newWeakReference(varName));
+        if (scoped) {
+            constructorBuilder.addParameter(WeakWrapScope.class, SCOPE_PARAM_NAME);
+            constructorBuilder.addStatement(SCOPE_FIELD_NAME + " = " + SCOPE_PARAM_NAME);
+            constructorBuilder.addStatement(SCOPE_EPOCH_FIELD_NAME + " = " + SCOPE_PARAM_NAME + ".epoch()");
+        }
+        if (flightRecorderEvents) {
+            constructorBuilder.addStatement("$T.created($T.class)", WeakWrapEvents.class, wrapClassName());
+        }
+        return constructorBuilder.build();
+    }
+
+    //pooled wrappers start out released
+    private MethodSpec createUnboundConstructor() {
+        MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addStatement(WEAK_REFERENCE_FIELD_NAME + " = $T.cleared()", WeakWrapReferences.class);
+        if (flightRecorderEvents) {
+            constructorBuilder.addStatement("$T.created($T.class)", WeakWrapEvents.class, wrapClassName());
+        }
+        return constructorBuilder.build();
+    }
+
+    private MethodSpec createRebindMethod() {
+        String varName = firstSmallLetterWithoutDots(originalClassName);
+        MethodSpec.Builder rebindBuilder = MethodSpec.methodBuilder(REBIND_METHOD_NAME)
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(fullOriginalClassName(), varName);
+        addForgetTargetStatements(rebindBuilder);
+        if (flightRecorderEvents) {
+            rebindBuilder.addStatement(TARGET_COLLECTED_REPORTED_FIELD_NAME + " = false");
+        }
+        return rebindBuilder
+                .addStatement(WEAK_REFERENCE_FIELD_NAME + " = $L", newWeakReference(varName))
+                .build();
+    }
+
+    //released wrappers hold the always cleared reference, so releasing twice can be told apart
+    private MethodSpec createReleaseMethod() {
+        MethodSpec.Builder releaseBuilder = MethodSpec.methodBuilder(RELEASE_METHOD_NAME)
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.BOOLEAN)
+                .addStatement("$T released = " + WEAK_REFERENCE_FIELD_NAME, weakReferenceType())
+                .addStatement(WEAK_REFERENCE_FIELD_NAME + " = $T.cleared()", WeakWrapReferences.class);
+        addForgetTargetStatements(releaseBuilder);
+        addSkipTargetCollectedStatement(releaseBuilder);
+        return releaseBuilder
+                .addStatement("return released != $T.<$T>cleared()", WeakWrapReferences.class, fullOriginalClassName())
+                .build();
+    }
+
+    //state that belongs to the previous target
+    private void addForgetTargetStatements(MethodSpec.Builder methodBuilder) {
+        if (deadTargetLatch) {
+            methodBuilder.addStatement(TARGET_DEAD_FIELD_NAME + " = false");
+        }
+        if (hasMemoizedMethods()) {
+            methodBuilder.addStatement(INVALIDATE_MEMOIZED_METHOD_NAME + "()");
+        }
+    }
+
+    private ClassName wrapClassName() {
+        return ClassName.get(packageName, wrapClassName);
+    }
+
+    private boolean hasTargetGoneWork() {
+        return deadTargetLatch || flightRecorderEvents || hasMemoizedMethods();
+    }
+
+    //the cold path shared by all wrapped methods, keeps their bodies small enough for the JIT to inline
+    private MethodSpec createTargetGoneMethod() {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(TARGET_GONE_METHOD_NAME)
+                .addModifiers(Modifier.PRIVATE);
+        if (deadTargetLatch) {
+            methodBuilder.addStatement(TARGET_DEAD_FIELD_NAME + " = true");
+        }
+        if (hasMemoizedMethods()) {
+            methodBuilder.addStatement(INVALIDATE_MEMOIZED_METHOD_NAME + "()");
+        }
+        if (flightRecorderEvents) {
+            //the first dropped call is where the wrapper learns that its target is gone, an ended scope is no collection
+            String notReported = "!" + TARGET_COLLECTED_REPORTED_FIELD_NAME;
+            if (scoped) {
+                notReported += " && " + SCOPE_FIELD_NAME + ".isActive(" + SCOPE_EPOCH_FIELD_NAME + ")";
+            }
+            methodBuilder.addParameter(String.class, "method")
+                    .beginControlFlow("if(" + notReported + ")")
+                    .addStatement(TARGET_COLLECTED_REPORTED_FIELD_NAME + " = true")
+                    .addStatement("$T.targetCollected($T.class)", WeakWrapEvents.class, wrapClassName())
+                    .endControlFlow()
+                    .addStatement("$T.droppedCall($T.class, method)", WeakWrapEvents.class, wrapClassName());
+        }
+        return methodBuilder.build();
+    }
+
+    //a target the wrapper was told to drop was not collected, the calls dropped after it are still reported
+    private void addSkipTargetCollectedStatement(MethodSpec.Builder methodBuilder) {
+        if (flightRecorderEvents) {
+            methodBuilder.addStatement(TARGET_COLLECTED_REPORTED_FIELD_NAME + " = true");
+        }
+    }
+
+    private CodeBlock newWeakReference(String varName) {
+        if (sharedReference) {
+            return CodeBlock.builder().add("$T.shared(" + varName + ")", WeakWrapReferences.class).build();
+        }
+        if (isSubscriber()) {
+            return CodeBlock.builder().add("new $T(" + varName + ")", subscriberReferenceClassName()).build();
+        }
+        return CodeBlock.builder().add("new $T<>(" + varName + ")", WeakReference.class).build();
+    }
+
+    private FieldSpec createReplayField() {
+        ParameterizedTypeName replayType = ParameterizedTypeName.get(ClassName.get(WeakWrapReplay.class), fullOriginalClassName());
+        return FieldSpec.builder(replayType, REPLAY_FIELD_NAME, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T<>(" + replaySlots.size() + ")", WeakWrapReplay.class)
+                .build();
+    }
+
+    private MethodSpec createAttachMethod() {
+        String varName = firstSmallLetterWithoutDots(originalClassName);
+        MethodSpec.Builder attachBuilder = MethodSpec.methodBuilder(ATTACH_METHOD_NAME)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(fullOriginalClassName(), varName)
+                .addStatement(WEAK_REFERENCE_FIELD_NAME + " = $L", newWeakReference(varName));
+        addForgetTargetStatements(attachBuilder);
+        if (flightRecorderEvents) {
+            attachBuilder.addStatement(TARGET_COLLECTED_REPORTED_FIELD_NAME + " = false");
+        }
+        return attachBuilder
+                .beginControlFlow("if(" + varName + " != null)")
+                .addStatement(REPLAY_FIELD_NAME + ".replayTo(" + varName + ")")
+                .endControlFlow()
+                .build();
+    }
+
+    private MethodSpec createIsTargetAliveMethod() {
+        String aliveCheck = refersToAvailable ? "!" + WEAK_REFERENCE_FIELD_NAME + "." + REFERS_TO_METHOD_NAME + "(null)"
+                : WEAK_REFERENCE_FIELD_NAME + ".get() != null";
+        return MethodSpec.methodBuilder(IS_TARGET_ALIVE_METHOD_NAME)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.BOOLEAN)
+                .addStatement("return !" + TARGET_DEAD_FIELD_NAME + " && " + aliveCheck)
+                .build();
+    }
+
+    private MethodSpec createWrapsMethod() {
+        String wrapsCheck = refersToAvailable ? WEAK_REFERENCE_FIELD_NAME + "." + REFERS_TO_METHOD_NAME + "(candidate)"
+                : WEAK_REFERENCE_FIELD_NAME + ".get() == candidate";
+        return MethodSpec.methodBuilder(WRAPS_METHOD_NAME)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.BOOLEAN)
+                .addParameter(fullOriginalClassName(), "candidate")
+                .addStatement("return " + wrapsCheck)
+                .build();
+    }
+
+    private List<FieldSpec> createMemoFields() {
+        List<FieldSpec> fields = new ArrayList<>(memoizedMethods.size());
+        for (MemoizedMethod memoized : memoizedMethods.values()) {
+            fields.add(FieldSpec.builder(memoized.cacheType, memoized.fieldName, Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer(memoized.newCache())
+                    .build());
+        }
+        return fields;
+    }
+
+    private MethodSpec createInvalidateMemoizedMethod() {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(INVALIDATE_MEMOIZED_METHOD_NAME)
+                .addModifiers(Modifier.PUBLIC);
+        for (MemoizedMethod memoized : memoizedMethods.values()) {
+            methodBuilder.addStatement(memoized.fieldName + ".clear()");
+        }
+        return methodBuilder.build();
+    }
+
+    private FieldSpec createWeakWrapField() {
+        TypeName fieldType = isSubscriber() ? subscriberReferenceClassName() : weakReferenceType();
+        Modifier mutability = isWeakWrapFieldReassignable() ? Modifier.VOLATILE : Modifier.FINAL;
+        return FieldSpec.builder(fieldType, WeakWrapWriter.WEAK_REFERENCE_FIELD_NAME, Modifier.PRIVATE, mutability).build();
+    }
+
+    //wrappers of annotated subinterfaces read the target through this, the reference itself stays private
+    private MethodSpec createWeakWrapTargetMethod() {
+        return MethodSpec.methodBuilder(WEAK_WRAP_TARGET_METHOD_NAME)
+                .addModifiers(Modifier.PROTECTED, Modifier.FINAL)
+                .returns(fullOriginalClassName())
+                .addStatement("return " + WEAK_REFERENCE_FIELD_NAME + ".get()")
+                .build();
+    }
+
+    private TypeName weakReferenceType() {
+        return ParameterizedTypeName.get(ClassName.get(WeakReference.class), fullOriginalClassName());
+    }
+
+    private ClassName subscriberReferenceClassName() {
+        return ClassName.get(packageName, wrapClassName, SUBSCRIBER_REFERENCE_CLASS_NAME);
+    }
+
+    private void addSubscriberMembers(TypeSpec.Builder builder) {
+        if (isRequestingBatches()) {
+            builder.addField(FieldSpec.builder(TypeName.LONG, REQUEST_BATCH_SIZE_FIELD_NAME, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("$LL", requestBatchSize)
+                    .build());
+            builder.addField(FieldSpec.builder(TypeName.LONG, REPLENISH_THRESHOLD_FIELD_NAME, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("$LL", replenishThreshold())
+                    .build());
+            builder.addField(FieldSpec.builder(TypeName.LONG, DELIVERED_FIELD_NAME, Modifier.PRIVATE).build());
+        }
+        builder.addType(subscriberReferenceType());
+    }
+
+    //request the next batch once three quarters of the outstanding one has been delivered
+    private long replenishThreshold() {
+        return Math.max(1, requestBatchSize - (requestBatchSize >> 2));
+    }
+
+    //the shared reaper thread cancels the subscription as soon as the subscriber is collected, even if the
+    //publisher never calls the wrapper again. Every call on the subscription goes through the reference's monitor,
+    //so the reaper's cancel never overlaps a request from the publisher's thread (Reactive Streams rule 2.7)
+    private TypeSpec subscriberReferenceType() {
+        ParameterizedTypeName superType = ParameterizedTypeName.get(ClassName.get(WeakWrapReaper.WeakTarget.class), fullOriginalClassName());
+        MethodSpec constructor = MethodSpec.constructorBuilder()
+                .addParameter(fullOriginalClassName(), "referent")
+                .addStatement("super(referent)")
+                .build();
+        MethodSpec onCollected = MethodSpec.methodBuilder(ON_COLLECTED_METHOD_NAME)
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .addStatement(CANCEL_SUBSCRIPTION_METHOD_NAME + "()")
+                .build();
+        return TypeSpec.classBuilder(SUBSCRIBER_REFERENCE_CLASS_NAME)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .superclass(superType)
+                .addField(subscriberShape.subscriptionType, SUBSCRIPTION_FIELD_NAME, Modifier.PRIVATE)
+                .addField(TypeName.BOOLEAN, CANCELLED_FIELD_NAME, Modifier.PRIVATE)
+                .addMethod(constructor)
+                .addMethod(onCollected)
+                .addMethod(setSubscriptionMethod())
+                .addMethod(requestMethod())
+                .addMethod(cancelSubscriptionMethod())
+                .build();
+    }
+
+    //a subscription arriving after the reaper or clearWeakWrapRef cancelled is cancelled right away
+    private MethodSpec setSubscriptionMethod() {
+        return MethodSpec.methodBuilder(SET_SUBSCRIPTION_METHOD_NAME)
+                .addModifiers(Modifier.SYNCHRONIZED)
+                .addParameter(subscriberShape.subscriptionType, SUBSCRIPTION_FIELD_NAME)
+                .beginControlFlow("if(" + CANCELLED_FIELD_NAME + ")")
+                .addStatement(SUBSCRIPTION_FIELD_NAME + "." + SubscriberShape.CANCEL + "()")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("this." + SUBSCRIPTION_FIELD_NAME + " = " + SUBSCRIPTION_FIELD_NAME)
+                .build();
+    }
+
+    //once cancelled the subscription is nulled, so demand is never signalled after cancel
+    private MethodSpec requestMethod() {
+        return MethodSpec.methodBuilder(REQUEST_METHOD_NAME)
+                .addModifiers(Modifier.SYNCHRONIZED)
+                .addParameter(TypeName.LONG, "n")
+                .beginControlFlow("if(" + SUBSCRIPTION_FIELD_NAME + " != null)")
+                .addStatement(SUBSCRIPTION_FIELD_NAME + "." + SubscriberShape.REQUEST + "(n)")
+                .endControlFlow()
+                .build();
+    }
+
+    //synchronized, the reaper thread and a dropped call may cancel at the same time and cancel has to be called serially
+    private MethodSpec cancelSubscriptionMethod() {
+        return MethodSpec.methodBuilder(CANCEL_SUBSCRIPTION_METHOD_NAME)
+                .addModifiers(Modifier.SYNCHRONIZED)
+                .addStatement(CANCELLED_FIELD_NAME + " = true")
+                .addStatement("$T " + SUBSCRIPTION_FIELD_NAME + " = this." + SUBSCRIPTION_FIELD_NAME, subscriberShape.subscriptionType)
+                .beginControlFlow("if(" + SUBSCRIPTION_FIELD_NAME + " != null)")
+                .addStatement("this." + SUBSCRIPTION_FIELD_NAME + " = null")
+                .addStatement(SUBSCRIPTION_FIELD_NAME + "." + SubscriberShape.CANCEL + "()")
+                .endControlFlow()
+                .build();
+    }
+
+    private ClassName fullOriginalClassName() {
+        return ClassName.get(packageName, originalClassName);
+    }
+
+    /**
+     * Number of methods of the original type the wrapper delegates, without constructors, helpers and the methods
+     * a parent wrapper already delegates.
+     */
+    public int wrappedMethodCount() {
+        return getWrappedMethodList().size();
+    }
+
+    private List<MethodSpec> createWrappedMethods() {
+        LinkedList<MethodSpec> wrappedMethods = new LinkedList<>();
+        for (ExecutableElement method : getWrappedMethodList()) {
+            wrappedMethods.add(wrapMethod(method));
+        }
+        return wrappedMethods;
+    }
+
+    private List<ExecutableElement> getWrappedMethodList() {
+        Set<? extends Element> parentMethods = hasParentWrapper() ? new HashSet<>(elemUtil.getAllMembers(parentType))
+                : Collections.<Element>emptySet();
+        List<ExecutableElement> wrappedMethods = new ArrayList<>();
+        for (ExecutableElement method : getMethodList()) {
+            if (!parentMethods.contains(method)) {
+                wrappedMethods.add(method);
+            }
+        }
+        return wrappedMethods;
+    }
+
+    private MethodSpec clearWeakWrapRefMethod() {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder("clearWeakWrapRef");
+        methodBuilder.addModifiers(Modifier.PUBLIC);
+        if (sharedReference) {
+            methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + " = $T.cleared()", WeakWrapReferences.class);
+        } else {
+            methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + ".clear()");
+        }
+        if (isSubscriber()) {
+            methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + "." + CANCEL_SUBSCRIPTION_METHOD_NAME + "()");
+        }
+        if (hasMemoizedMethods()) {
+            methodBuilder.addStatement(INVALIDATE_MEMOIZED_METHOD_NAME + "()");
+        }
+        addSkipTargetCollectedStatement(methodBuilder);
+        return methodBuilder.build();
+    }
+
+    private String firstSmallLetterWithoutDots(String string) {
+        StringBuilder convertedString = new StringBuilder(string.length());
+        convertedString.append(Character.toLowerCase(string.charAt(0)));
+        for (int i = 1; i < string.length(); i++) {
+            char ch = string.charAt(i);
+            if (ch == '.') continue;
+            convertedString.append(ch);
+        }
+        return convertedString.toString();
+    }
+
+    private List<? extends ExecutableElement> getMethodList() {
+        LinkedList<ExecutableElement> methods = new LinkedList<>();
+        for (Element e : getAllMethodsSet()) {
+            ExecutableElement method = (ExecutableElement) e;
+            if (canOverride(method)) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private Set<? extends Element> getAllMethodsSet() {
+        return ElementFilter.methodsIn(new LinkedHashSet<>(elemUtil.getAllMembers(typeElement)));
+    }
+
+    private boolean canOverride(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PROTECTED)) {
+            String methodPackage = elemUtil.getPackageOf(method).getQualifiedName().toString();
+            if (!methodPackage.equals(packageName)) {
+                return false;
+            }
+        }
+        return !(modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL));
+    }
+
+    private MethodSpec wrapMethod(ExecutableElement originalMethod) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(copyMethodName(originalMethod));
+        copyMethodSignature(originalMethod, methodBuilder);
+        addWrappedMethodBody(originalMethod, methodBuilder);
+        return methodBuilder.build();
+    }
+
+    private void copyMethodSignature(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        methodBuilder.addModifiers(copyMethodModifiers(originalMethod));
+        methodBuilder.addTypeVariables(copyTypeParameters(originalMethod));
+        methodBuilder.addParameters(copyMethodParameters(originalMethod));
+        methodBuilder.addExceptions(copyMethodExceptions(originalMethod));
+        methodBuilder.varargs(copyVarargs(originalMethod));
+        methodBuilder.returns(copyReturnType(originalMethod));
+    }
+
+    private void addWrappedMethodBody(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        if (isSubscriber() && subscriberShape.isOnSubscribe(originalMethod)) {
+            addOnSubscribeBody(originalMethod, methodBuilder);
+            return;
+        }
+        if (isSubscriber() && subscriberShape.isOnNext(originalMethod)) {
+            addOnNextBody(originalMethod, methodBuilder);
+            return;
+        }
+        if (isReplayed(originalMethod)) {
+            addReplayedBody(originalMethod, methodBuilder);
+            return;
+        }
+        if (memoizedMethods.containsKey(originalMethod)) {
+            addMemoizedBody(originalMethod, methodBuilder);
+            return;
+        }
+        methodBuilder.addStatement(getWeakReferenceToLocalVar());
+        methodBuilder.beginControlFlow(ifLocalVarIsNotNull());
+        addDelegateCall(originalMethod, methodBuilder);
+        methodBuilder.endControlFlow();
+        addDeadTargetStatements(originalMethod, methodBuilder);
+        if (isReturnStatementNeeded(originalMethod)) {
+            methodBuilder.addStatement(addReturnStatement(originalMethod));
+        }
+    }
+
+    private void addDelegateCall(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        addDelegateCall(originalMethod, addExecuteOriginalMethod(originalMethod), methodBuilder);
+    }
+
+    private void addDelegateCall(ExecutableElement originalMethod, String delegateStatement, MethodSpec.Builder methodBuilder) {
+        if (!flightRecorderEvents) {
+            methodBuilder.addStatement(delegateStatement);
+            return;
+        }
+        methodBuilder.addStatement("$T " + SLOW_CALL_VAR_NAME + " = $T.beginCall()", Object.class, WeakWrapEvents.class);
+        methodBuilder.beginControlFlow("try");
+        methodBuilder.addStatement(delegateStatement);
+        methodBuilder.nextControlFlow("finally");
+        methodBuilder.addStatement("$T.endCall(" + SLOW_CALL_VAR_NAME + ", $T.class, $S)",
+                WeakWrapEvents.class, wrapClassName(), copyMethodName(originalMethod));
+        methodBuilder.endControlFlow();
+    }
+
+    private void addDeadTargetStatements(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        if (flightRecorderEvents) {
+            methodBuilder.addStatement(TARGET_GONE_METHOD_NAME + "($S)", copyMethodName(originalMethod));
+        } else if (hasTargetGoneWork()) {
+            methodBuilder.addStatement(TARGET_GONE_METHOD_NAME + "()");
+        }
+    }
+
+    private void addOnSubscribeBody(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        String subscription = originalMethod.getParameters().get(0).getSimpleName().toString();
+        methodBuilder.addStatement(getWeakReferenceToLocalVar());
+        methodBuilder.beginControlFlow(ifLocalVarIsNotNull());
+        methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + "." + SET_SUBSCRIPTION_METHOD_NAME + "(" + subscription + ")");
+        addDelegateCall(originalMethod, methodBuilder);
+        if (isRequestingBatches()) {
+            methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + "." + REQUEST_METHOD_NAME + "(" + REQUEST_BATCH_SIZE_FIELD_NAME + ")");
+        }
+        methodBuilder.addStatement("return");
+        methodBuilder.endControlFlow();
+        addDeadTargetStatements(originalMethod, methodBuilder);
+        methodBuilder.addStatement(subscription + "." + SubscriberShape.CANCEL + "()");
+    }
+
+    private void addOnNextBody(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        methodBuilder.addStatement(getWeakReferenceToLocalVar());
+        methodBuilder.beginControlFlow(ifLocalVarIsNotNull());
+        addDelegateCall(originalMethod, methodBuilder);
+        if (isRequestingBatches()) {
+            methodBuilder.beginControlFlow("if(++" + DELIVERED_FIELD_NAME + " == " + REPLENISH_THRESHOLD_FIELD_NAME + ")");
+            methodBuilder.addStatement(DELIVERED_FIELD_NAME + " = 0");
+            methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + "." + REQUEST_METHOD_NAME + "(" + REPLENISH_THRESHOLD_FIELD_NAME + ")");
+            methodBuilder.endControlFlow();
+        }
+        methodBuilder.addStatement("return");
+        methodBuilder.endControlFlow();
+        addDeadTargetStatements(originalMethod, methodBuilder);
+        methodBuilder.addStatement(WEAK_REFERENCE_FIELD_NAME + "." + CANCEL_SUBSCRIPTION_METHOD_NAME + "()");
+    }
+
+    private void addReplayedBody(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        methodBuilder.addStatement(getWeakReferenceToLocalVar());
+        methodBuilder.beginControlFlow(ifLocalVarIsNotNull());
+        addDelegateCall(originalMethod, methodBuilder);
+        methodBuilder.addStatement("return");
+        methodBuilder.endControlFlow();
+        addDeadTargetStatements(originalMethod, methodBuilder);
+        methodBuilder.addStatement(REPLAY_FIELD_NAME + ".record(" + replaySlots.get(originalMethod) + ", $L)", createReplayCall(originalMethod));
+    }
+
+    private void addMemoizedBody(ExecutableElement originalMethod, MethodSpec.Builder methodBuilder) {
+        MemoizedMethod memoized = memoizedMethods.get(originalMethod);
+        TypeName returnType = copyReturnType(originalMethod);
+        TypeName cachedType = returnType.box();
+        String delegateCall = executeOriginalMethod(false, copyMethodName(originalMethod), copyMethodParamNames(originalMethod));
+        if (!(cachedType instanceof ClassName)) {
+            methodBuilder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+        }
+        methodBuilder.addStatement(getWeakReferenceToLocalVar());
+        methodBuilder.beginControlFlow(ifLocalVarIsNotNull());
+        if (memoized.hasComposedKey()) {
+            methodBuilder.addStatement("$L", memoized.keyDeclaration());
+        }
+        methodBuilder.addStatement("$T " + MEMOIZED_VAR_NAME + " = $L", Object.class, memoized.get());
+        methodBuilder.beginControlFlow("if(" + MEMOIZED_VAR_NAME + " != $T.MISS)", WeakWrapMemo.class);
+        methodBuilder.addStatement("return ($T) " + MEMOIZED_VAR_NAME, cachedType);
+        methodBuilder.endControlFlow();
+        if (flightRecorderEvents) {
+            methodBuilder.addStatement("$T " + RESULT_VAR_NAME, returnType);
+            addDelegateCall(originalMethod, RESULT_VAR_NAME + " =" + delegateCall, methodBuilder);
+        } else {
+            methodBuilder.addStatement("$T " + RESULT_VAR_NAME + " =" + delegateCall, returnType);
+        }
+        methodBuilder.addStatement("$L", memoized.put(RESULT_VAR_NAME));
+        methodBuilder.addStatement("return " + RESULT_VAR_NAME);
+        methodBuilder.endControlFlow();
+        addDeadTargetStatements(originalMethod, methodBuilder);
+        methodBuilder.addStatement(addReturnStatement(originalMethod));
+    }
+
+    private TypeSpec createReplayCall(ExecutableElement originalMethod) {
+        MethodSpec replayMethod = MethodSpec.methodBuilder("replay")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(fullOriginalClassName(), LOCAL_VAR_NAME)
+                .addStatement(addExecuteOriginalMethod(originalMethod))
+                .build();
+        return TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(WeakWrapReplay.Call.class), fullOriginalClassName()))
+                .addMethod(replayMethod)
+                .build();
+    }
+
+    private Set<Modifier> copyMethodModifiers(ExecutableElement originalMethod) {
+        Set<Modifier> modifiers = new LinkedHashSet<>(originalMethod.getModifiers());
+        modifiers.remove(Modifier.ABSTRACT);
+        modifiers.remove(Modifier.NATIVE);
+        return modifiers;
+    }
+
+    private Iterable<TypeVariableName> copyTypeParameters(ExecutableElement originalMethod) {
+        ArrayList<TypeVariableName> typeParameters = new ArrayList<>(originalMethod.getTypeParameters().size());
+        for (TypeParameterElement typeParameterElement : originalMethod.getTypeParameters()) {
+            TypeVariable var = (TypeVariable) typeParameterElement.asType();
+            typeParameters.add(TypeVariableName.get(var));
+        }
+        return typeParameters;
+    }
+
+    private Iterable<ParameterSpec> copyMethodParameters(ExecutableElement originalMethod) {
+        ArrayList<ParameterSpec> methodParameters = new ArrayList<>(originalMethod.getParameters().size());
+        List<? extends TypeMirror> parameterTypes = asMemberOfOriginal(originalMethod).getParameterTypes();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            VariableElement parameter = originalMethod.getParameters().get(i);
+            TypeName type = TypeName.get(parameterTypes.get(i));
+            String name = parameter.getSimpleName().toString();
+            Set<Modifier> parameterModifiers = new LinkedHashSet<>(parameter.getModifiers());
+            //captured by the anonymous replay call
+            if (isReplayed(originalMethod)) {
+                parameterModifiers.add(Modifier.FINAL);
+            }
+            ParameterSpec.Builder parameterBuilder = ParameterSpec.builder(type, name)
+                    .addModifiers(parameterModifiers.toArray(new Modifier[parameterModifiers.size()]));
+            methodParameters.add(parameterBuilder.build());
+        }
+        return methodParameters;
+    }
+
+    private Iterable<TypeName> copyMethodExceptions(ExecutableElement originalMethod) {
+        ArrayList<TypeName> methodExceptions = new ArrayList<>(originalMethod.getThrownTypes().size());
+        for (TypeMirror thrownType : asMemberOfOriginal(originalMethod).getThrownTypes()) {
+            methodExceptions.add(TypeName.get(thrownType));
+        }
+        return methodExceptions;
+    }
+
+    private boolean copyVarargs(ExecutableElement originalMethod) {
+        return originalMethod.isVarArgs();
+    }
+
+    private TypeName copyReturnType(ExecutableElement originalMethod) {
+        TypeMirror returnType = asMemberOfOriginal(originalMethod).getReturnType();
+        return TypeName.get(returnType);
+    }
+
+    //resolves type arguments of inherited generic methods, e.g. onNext(T) of Subscriber<String> becomes onNext(String)
+    private ExecutableType asMemberOfOriginal(ExecutableElement originalMethod) {
+        return (ExecutableType) typeUtil.asMemberOf((DeclaredType) typeElement.asType(), originalMethod);
+    }
+
+    //an invalidated scope takes the same path as a collected target
+    private String getWeakReferenceToLocalVar() {
+        String deadCondition = null;
+        if (deadTargetLatch) {
+            deadCondition = TARGET_DEAD_FIELD_NAME;
+        }
+        if (scoped) {
+            String scopeEnded = "!" + SCOPE_FIELD_NAME + ".isActive(" + SCOPE_EPOCH_FIELD_NAME + ")";
+            deadCondition = deadCondition == null ? scopeEnded : deadCondition + " || " + scopeEnded;
+        }
+        if (deadCondition != null) {
+            return originalClassName + " " + LOCAL_VAR_NAME + " = " + deadCondition + " ? null : " + WEAK_REFERENCE_FIELD_NAME + ".get()";
+        }
+        //the inherited accessor returns the parent type
+        if (hasParentWrapper()) {
+            return originalClassName + " " + LOCAL_VAR_NAME + " = (" + originalClassName + ") " + WEAK_WRAP_TARGET_METHOD_NAME + "()";
+        }
+        return originalClassName + " " + LOCAL_VAR_NAME + " = " + WEAK_REFERENCE_FIELD_NAME + ".get()";
+    }
+
+    private String ifLocalVarIsNotNull() {
+        return "if(" + LOCAL_VAR_NAME + " != null)";
+    }
+
+    private String addExecuteOriginalMethod(ExecutableElement originalMethod) {
+        boolean returnNeeded = isReturnStatementNeeded(originalMethod);
+        String originalMethodName = copyMethodName(originalMethod);
+        Iterable<String> copiedParamNames = copyMethodParamNames(originalMethod);
+        return executeOriginalMethod(returnNeeded, originalMethodName, copiedParamNames);
+    }
+
+    private String addReturnStatement(ExecutableElement originalMethod) {
+        TypeKind returnKind = originalMethod.getReturnType().getKind();
+        if (returnKind.isPrimitive()) {
+            if (returnKind.equals(TypeKind.BOOLEAN)) {
+                return "return false";
+            }
+            return "return 0";
+        }
+        return "return null";
+    }
+
+    private boolean isReturnStatementNeeded(ExecutableElement originalMethod) {
+        TypeMirror returnType = originalMethod.getReturnType();
+        return !(returnType.getKind().equals(TypeKind.VOID));
+    }
+
+    private String copyMethodName(ExecutableElement originalMethod) {
+        return originalMethod.getSimpleName().toString();
+    }
+
+    private Iterable<String> copyMethodParamNames(ExecutableElement originalMethod) {
+        ArrayList<String> methodParamNames = new ArrayList<>(originalMethod.getParameters().size());
+        for (VariableElement parameter : originalMethod.getParameters()) {
+            String name = parameter.getSimpleName().toString();
+            methodParamNames.add(name);
+        }
+        return methodParamNames;
+    }
+
+    private String executeOriginalMethod(boolean isReturnNeeded, String originalMethodName, Iterable<String> originalParamNames) {
+        String optReturn = isReturnNeeded ? "return" : "";
+        String joinedOriginalParams = Joiner.on(',').join(originalParamNames);
+        return optReturn + " " + LOCAL_VAR_NAME + "." + originalMethodName + "(" + joinedOriginalParams + ")";
+    }
+
+}
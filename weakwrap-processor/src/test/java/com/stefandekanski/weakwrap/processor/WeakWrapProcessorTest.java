@@ -0,0 +1,1547 @@
+package com.stefandekanski.weakwrap.processor;
+
+
+import com.google.common.base.Joiner;
+import com.google.testing.compile.JavaFileObjects;
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapProcessorTest {
+
+    WeakWrapProcessor weakWrapProcessor;
+
+    @Before
+    public void setUp() {
+        weakWrapProcessor = new WeakWrapProcessor();
+    }
+
+    @Test
+    public void testSupportedAnnotationTypes() {
+        Set<String> supportedAnnotationTypes = weakWrapProcessor.getSupportedAnnotationTypes();
+
+        assertThat(supportedAnnotationTypes.size(), is(1));
+        assertThat(supportedAnnotationTypes, hasItem(WeakWrap.class.getCanonicalName()));
+    }
+
+    @Test
+    public void testSupportedOptions() {
+        assertThat(weakWrapProcessor.getSupportedOptions(), hasItem(ProcessingProfile.OPTION));
+    }
+
+    @Test
+    public void testAnnotationOnMethod() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.AnnotationOnMethod", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "public class AnnotationOnMethod {",
+                "   @WeakWrap",
+                "   public void someMethod(){",
+                "   }",
+                "}"));
+
+        assertAbout(javaSource()).that(source).failsToCompile();
+    }
+
+    @Test
+    public void testAnnotationOnField() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.AnnotationOnMethod", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "public class AnnotationOnMethod {",
+                "   @WeakWrap",
+                "   private final int mockInt;",
+                "}"));
+
+        assertAbout(javaSource()).that(source).failsToCompile();
+    }
+
+    @Test
+    public void testDeepPackage() {
+        JavaFileObject source = JavaFileObjects.forSourceString("com.very.deep.something.SomeInterface", Joiner.on('\n').join(
+                "package com.very.deep.something;",
+                importObjectMethodStuff(),
+                importWeakWrapAnnotation(),
+                "public interface SomeInterface {",
+                "    @WeakWrap",
+                "    interface View {",
+                "    }",
+                "}"
+        ));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("com.very.deep.something.WeakWrapSomeInterfaceView", Joiner.on('\n').join(
+                "package com.very.deep.something;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapInterfaceStart("SomeInterface.View"),
+                objectOverriddenMethods("SomeInterface.View"),
+
+                clearWeakWrapRefMethod(),
+                weakWrapTargetMethod("SomeInterface.View"),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testAnnotationOnNonStaticInnerClass() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.AnnotationOnNonStaticInnerClass", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakWrapAnnotation(),
+                "public class AnnotationOnNonStaticInnerClass {",
+                "   @WeakWrap",
+                "   public class NonStaticInner{",
+                "   }",
+                "}"));
+
+        assertAbout(javaSource())
+                .that(source)
+                .processedWith(weakWrapProcessor)
+                .failsToCompile()
+                .withErrorContaining(WeakWrapWriter.TYPE_VALIDATION_MSG);
+    }
+
+    @Test
+    public void testEmptyClass() {
+        JavaFileObject source = JavaFileObjects.forSourceString("EmptyClass", Joiner.on('\n').join(
+                importWeakWrapAnnotation(),
+                importObjectMethodStuff(),
+                "@WeakWrap",
+                "public class EmptyClass {",
+                "    protected Object clone(){",
+                "        return null;",
+                "    }",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("WeakWrapEmptyClass", Joiner.on('\n').join(
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("EmptyClass"),
+                objectOverriddenMethods("EmptyClass"),
+
+                "protected Object clone(){",
+                wrapperMethodBodyAndClose("EmptyClass", "clone()", "null"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testSimpleInterface() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.SimpleInterface", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(classNamePrefix = \"Test\")",
+                "interface SimpleInterface {",
+                "   void someMethod();",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.TestSimpleInterface", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapInterfaceStart("Test", "SimpleInterface"),
+                objectOverriddenMethods("SimpleInterface"),
+
+                "public void someMethod(){",
+                wrapperMethodBodyAndClose("SimpleInterface", "someMethod()"),
+
+                clearWeakWrapRefMethod(),
+                weakWrapTargetMethod("SimpleInterface"),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testClassModifiers() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.ModifiersClass", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "abstract class ModifiersClass {",
+                "   private void somePrivateMethod() {",
+                "   }",
+                "   public static void someStaticMethod(){",
+                "   }",
+                "   void defaultMethod(){",
+                "   }",
+                "   public abstract void someAbstractMethod();",
+                "   protected void someProtectedMethod(){",
+                "   }",
+                "   protected abstract void protectedAbstractMethod();",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapModifiersClass", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("ModifiersClass"),
+                objectOverriddenMethods("ModifiersClass"),
+
+                "void defaultMethod(){",
+                wrapperMethodBodyAndClose("ModifiersClass", "defaultMethod()"),
+
+                "public void someAbstractMethod(){",
+                wrapperMethodBodyAndClose("ModifiersClass", "someAbstractMethod()"),
+
+                "protected void someProtectedMethod(){",
+                wrapperMethodBodyAndClose("ModifiersClass", "someProtectedMethod()"),
+
+                "protected void protectedAbstractMethod(){",
+                wrapperMethodBodyAndClose("ModifiersClass", "protectedAbstractMethod()"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testClassWithMethodsThatThrowExceptions() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.ClassWithMethodsThatThrowExceptions", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakWrapAnnotation(),
+                "import java.io.IOException;",
+                "@WeakWrap",
+                "public class ClassWithMethodsThatThrowExceptions {",
+                "   public void throwMethod() throws IOException,InterruptedException{",
+                "   }",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapClassWithMethodsThatThrowExceptions", Joiner.on('\n').join(
+                "package test;",
+                "import java.io.IOException;",
+                "import java.lang.InterruptedException;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("ClassWithMethodsThatThrowExceptions"),
+                objectOverriddenMethods("ClassWithMethodsThatThrowExceptions"),
+
+                "public void throwMethod() throws IOException,InterruptedException{",
+                wrapperMethodBodyAndClose("ClassWithMethodsThatThrowExceptions", "throwMethod()"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testClassWithVoidMethods() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.SimpleClass", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public class SimpleClass {",
+                "   public void simpleMethod(){",
+                "   }",
+                "   public void simpleParam(int par){",
+                "   }",
+                "   public void simpleMultipleParam(int in,long lo,double dou){",
+                "   }",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapSimpleClass", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("SimpleClass"),
+                objectOverriddenMethods("SimpleClass"),
+
+                "public void simpleMethod(){",
+                wrapperMethodBodyAndClose("SimpleClass", "simpleMethod()"),
+
+                "public void simpleParam(int par){",
+                wrapperMethodBodyAndClose("SimpleClass", "simpleParam(par)"),
+
+                "public void simpleMultipleParam(int in,long lo,double dou){",
+                wrapperMethodBodyAndClose("SimpleClass", "simpleMultipleParam(in, lo, dou)"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testClassWithVarargMethod() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.ClassWithVarargs", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public class ClassWithVarargs {",
+                "   public void varargMethod(int a,Object... objectVararg){",
+                "   }",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapClassClassWithVarargs", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("ClassWithVarargs"),
+                objectOverriddenMethods("ClassWithVarargs"),
+
+                "public void varargMethod(int a,Object... objectVararg){",
+                wrapperMethodBodyAndClose("ClassWithVarargs", "varargMethod(a,objectVararg)"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testInnerClassAndInterface() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.SimpleClass", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "public class SimpleClass {",
+                "   @WeakWrap",
+                "   public static class InnerClass {",
+                "   }",
+                "   @WeakWrap",
+                "   interface InnerInterface{",
+                "   }",
+                "}"));
+
+        JavaFileObject expectedClassSource = JavaFileObjects.forSourceString("test.WeakWrapSimpleClassInnerClass", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("SimpleClass.InnerClass"),
+                objectOverriddenMethods("SimpleClass.InnerClass"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        JavaFileObject expectedInterfaceSource = JavaFileObjects.forSourceString("test.WeakWrapSimpleClassInnerInterface", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapInterfaceStart("SimpleClass.InnerInterface"),
+                objectOverriddenMethods("SimpleClass.InnerInterface"),
+
+                clearWeakWrapRefMethod(),
+                weakWrapTargetMethod("SimpleClass.InnerInterface"),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedClassSource, expectedInterfaceSource);
+    }
+
+    @Test
+    public void testClassWithGenericMethods() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.SimpleGenericMethods", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "import java.util.Collection;",
+                "import java.util.List;",
+                "@WeakWrap",
+                "public class SimpleGenericMethods {",
+                "   public void simpleGenericParam(List<Long> longList){",
+                "   }",
+                "   public void simpleWildCard(Collection<? extends Number > col){",
+                "   }",
+                "   public <K, V> void simpleGenericMethod(K key, V val) {",
+                "   }",
+                "   public <T extends Comparable<T>> void genericMethod(T[] anArray, T elem) {",
+                "   }",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapSimpleGenericMethods", Joiner.on('\n').join(
+                "package test;",
+                "import java.lang.Comparable;",
+                "import java.lang.Long;",
+                "import java.lang.Number;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+                "import java.util.Collection;",
+                "import java.util.List;",
+
+                wrapClassStart("SimpleGenericMethods"),
+                objectOverriddenMethods("SimpleGenericMethods"),
+
+                "public void simpleGenericParam(List<Long> longList){",
+                wrapperMethodBodyAndClose("SimpleGenericMethods", "simpleGenericParam(longList)"),
+
+                "public void simpleWildCard(Collection<? extends Number> col){",
+                wrapperMethodBodyAndClose("SimpleGenericMethods", "simpleWildCard(col)"),
+
+                "public <K, V> void simpleGenericMethod(K key, V val) {",
+                wrapperMethodBodyAndClose("SimpleGenericMethods", "simpleGenericMethod(key,val)"),
+
+                "public <T extends Comparable<T>> void genericMethod(T[] anArray, T elem){",
+                wrapperMethodBodyAndClose("SimpleGenericMethods", "genericMethod(anArray,elem)"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testClassWithReturnTypes() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.SimplePrimitiveClass", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public class SimplePrimitiveClass {",
+                "   public byte primitiveByteMethod(){",
+                "       return 0;",
+                "   }",
+                "   public short primitiveShortMethod(){",
+                "       return 0;",
+                "   }",
+                "   public int primitiveIntMethod(){",
+                "       return 0;",
+                "   }",
+                "   public long primitiveLongMethod(){",
+                "       return 0;",
+                "   }",
+                "   public float primitiveFloatMethod(){",
+                "       return 0;",
+                "   }",
+                "   public double primitiveDoubleMethod(){",
+                "       return 0;",
+                "   }",
+                "   public boolean primitiveBooleanMethod(){",
+                "       return true;",
+                "   }",
+                "   public char primitiveCharMethod(){",
+                "       return 0;",
+                "   }",
+                "   public Object simpleObjectMethod(){",
+                "       return new Object();",
+                "   }",
+                "   public Long simplePrimitiveWrapperMethod(){",
+                "       return new Long(1234);",
+                "   }",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapSimplePrimitiveClass", Joiner.on('\n').join(
+                "package test;",
+                "import java.lang.Long;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassStart("SimplePrimitiveClass"),
+                objectOverriddenMethods("SimplePrimitiveClass"),
+
+                "public byte primitiveByteMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveByteMethod()", "0"),
+
+                "public short primitiveShortMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveShortMethod()", "0"),
+
+                "public int primitiveIntMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveIntMethod()", "0"),
+
+                "public long primitiveLongMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveLongMethod()", "0"),
+
+                "public float primitiveFloatMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveFloatMethod()", "0"),
+
+                "public double primitiveDoubleMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveDoubleMethod()", "0"),
+
+                "public boolean primitiveBooleanMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveBooleanMethod()", "false"),
+
+                "public char primitiveCharMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "primitiveCharMethod()", "0"),
+
+                "public Object simpleObjectMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "simpleObjectMethod()", "null"),
+
+                "public Long simplePrimitiveWrapperMethod(){",
+                wrapperMethodBodyAndClose("SimplePrimitiveClass", "simplePrimitiveWrapperMethod()", "null"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testExtendedInterface() {
+        JavaFileObject source1 = JavaFileObjects.forSourceString("com.test.SimpleInterface", Joiner.on('\n').join(
+                "package com.test;",
+                importWeakWrapAnnotation(),
+                "public interface SimpleInterface {",
+                "   void someTestMethod();",
+                "}"
+        ));
+
+        JavaFileObject source2 = JavaFileObjects.forSourceString("test.SomeInterface", Joiner.on('\n').join(
+                "package test;",
+                "import com.test.SimpleInterface;",
+                importWeakWrapAnnotation(),
+                "public interface SomeInterface {",
+                "    @WeakWrap",
+                "    interface View extends SimpleInterface{",
+                "    }",
+                "}"
+        ));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapSomeInterfaceView", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapInterfaceStart("SomeInterface.View"),
+                objectOverriddenMethods("SomeInterface.View"),
+
+                "public void someTestMethod(){",
+                wrapperMethodBodyAndClose("SomeInterface.View", "someTestMethod()"),
+
+                clearWeakWrapRefMethod(),
+                weakWrapTargetMethod("SomeInterface.View"),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSources()).that(Arrays.asList(source1, source2))
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testExtendedClassWithInterfaces() {
+        JavaFileObject sourceInterface1 = JavaFileObjects.forSourceString("com.test.SimpleInterface", Joiner.on('\n').join(
+                "package com.test;",
+                "public interface SimpleInterface {",
+                "   void someTestMethod();",
+                "}"
+        ));
+
+        JavaFileObject sourceInterface2 = JavaFileObjects.forSourceString("test.SomeInterfaceTwo", Joiner.on('\n').join(
+                "package test;",
+                "public interface SomeInterfaceTwo {",
+                "   void someTestMethodTwo();",
+                "}"
+        ));
+
+        JavaFileObject sourceClass = JavaFileObjects.forSourceString("test.SomeClassToExtend", Joiner.on('\n').join(
+                "package test;",
+                "public class SomeClassToExtend {",
+                "   void someClassMethod(){",
+                "   }",
+                "}"
+        ));
+
+        JavaFileObject sourceTest = JavaFileObjects.forSourceString("test.ClassWithInterfaces", Joiner.on('\n').join(
+                "package test;",
+                "import com.test.SimpleInterface;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public class ClassWithInterfaces extends SomeClassToExtend implements SimpleInterface, SomeInterfaceTwo{",
+                "   void someMethod(){",
+                "   }",
+                "   public void someTestMethod(){",
+                "   }",
+                "   public void someTestMethodTwo(){",
+                "   }",
+                "}"
+        ));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapClassWithInterfaces", Joiner.on('\n').join(
+                "package test;",
+                "",
+                "import com.test.SimpleInterface;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapClassWithInterfaces("ClassWithInterfaces", "SimpleInterface", "SomeInterfaceTwo"),
+                objectOverriddenMethods("ClassWithInterfaces"),
+
+                "void someClassMethod(){",
+                wrapperMethodBodyAndClose("ClassWithInterfaces", "someClassMethod()"),
+
+                "void someMethod(){",
+                wrapperMethodBodyAndClose("ClassWithInterfaces", "someMethod()"),
+
+                "public void someTestMethod(){",
+                wrapperMethodBodyAndClose("ClassWithInterfaces", "someTestMethod()"),
+
+                "public void someTestMethodTwo(){",
+                wrapperMethodBodyAndClose("ClassWithInterfaces", "someTestMethodTwo()"),
+
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSources()).that(Arrays.asList(sourceInterface1, sourceInterface2, sourceClass, sourceTest))
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testSubscriberShapedInterface() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.BookSubscriber", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                subscriberShapeSource(),
+                "@WeakWrap(requestBatchSize = 16)",
+                "interface BookSubscriber extends Subscriber<String> {",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapBookSubscriber", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapReaper;",
+                "import java.lang.Object;",
+                "import java.lang.Override;",
+                "import java.lang.String;",
+                "import java.lang.Throwable;",
+                "",
+                "public class WeakWrapBookSubscriber implements BookSubscriber {",
+                "   private static final long REQUEST_BATCH_SIZE = 16L;",
+                "   private static final long REPLENISH_THRESHOLD = 12L;",
+                "   private final SubscriberReference weakWrap;",
+                "   private long delivered;",
+                "   public WeakWrapBookSubscriber(BookSubscriber bookSubscriber) {",
+                "       weakWrap = new SubscriberReference(bookSubscriber);",
+                "   }",
+                objectOverriddenMethods("BookSubscriber"),
+                "public void onSubscribe(Subscription subscription) {",
+                "    BookSubscriber original = weakWrap.get();",
+                "    if(original != null) {",
+                "        weakWrap.setSubscription(subscription);",
+                "        original.onSubscribe(subscription);",
+                "        weakWrap.request(REQUEST_BATCH_SIZE);",
+                "        return;",
+                "    }",
+                "    subscription.cancel();",
+                "}",
+                "public void onNext(String item) {",
+                "    BookSubscriber original = weakWrap.get();",
+                "    if(original != null) {",
+                "        original.onNext(item);",
+                "        if(++delivered == REPLENISH_THRESHOLD) {",
+                "            delivered = 0;",
+                "            weakWrap.request(REPLENISH_THRESHOLD);",
+                "        }",
+                "        return;",
+                "    }",
+                "    weakWrap.cancelSubscription();",
+                "}",
+                "public void onError(Throwable throwable) {",
+                wrapperMethodBodyAndClose("BookSubscriber", "onError(throwable)"),
+                "public void onComplete() {",
+                wrapperMethodBodyAndClose("BookSubscriber", "onComplete()"),
+                "public void clearWeakWrapRef(){",
+                "    weakWrap.clear();",
+                "    weakWrap.cancelSubscription();",
+                "}",
+                "private static final class SubscriberReference extends WeakWrapReaper.WeakTarget<BookSubscriber> {",
+                "    private Subscription subscription;",
+                "    private boolean cancelled;",
+                "    SubscriberReference(BookSubscriber referent) {",
+                "        super(referent);",
+                "    }",
+                "    @Override",
+                "    protected void onCollected() {",
+                "        cancelSubscription();",
+                "    }",
+                "    synchronized void setSubscription(Subscription subscription) {",
+                "        if(cancelled) {",
+                "            subscription.cancel();",
+                "            return;",
+                "        }",
+                "        this.subscription = subscription;",
+                "    }",
+                "    synchronized void request(long n) {",
+                "        if(subscription != null) {",
+                "            subscription.request(n);",
+                "        }",
+                "    }",
+                "    synchronized void cancelSubscription() {",
+                "        cancelled = true;",
+                "        Subscription subscription = this.subscription;",
+                "        if(subscription != null) {",
+                "            this.subscription = null;",
+                "            subscription.cancel();",
+                "        }",
+                "    }",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testRequestBatchSizeOnNonSubscriber() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.NotASubscriber", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(requestBatchSize = 16)",
+                "interface NotASubscriber {",
+                "   void onNext(String item);",
+                "}"));
+
+        assertAbout(javaSource())
+                .that(source)
+                .processedWith(weakWrapProcessor)
+                .failsToCompile()
+                .withErrorContaining(WeakWrapWriter.REQUEST_BATCH_SIZE_VALIDATION_MSG);
+    }
+
+    @Test
+    public void testSharedReference() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.SharedView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(sharedReference = true)",
+                "interface SharedView {",
+                "   void show();",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapSharedView", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapReferences;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+                "",
+                "public class WeakWrapSharedView implements SharedView {",
+                "   private volatile WeakReference<SharedView> weakWrap;",
+                "   public WeakWrapSharedView(SharedView sharedView) {",
+                "       weakWrap = WeakWrapReferences.shared(sharedView);",
+                "   }",
+                objectOverriddenMethods("SharedView"),
+
+                "public void show(){",
+                wrapperMethodBodyAndClose("SharedView", "show()"),
+
+                "public void clearWeakWrapRef(){",
+                "    weakWrap = WeakWrapReferences.cleared();",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testReattachable() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.BookView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(reattachable = true)",
+                "interface BookView {",
+                "   void showBook(String title, int pages);",
+                "   boolean isShowing();",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapBookView", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapReplay;",
+                "import java.lang.Object;",
+                "import java.lang.Override;",
+                "import java.lang.String;",
+                importWeakReference(),
+                "",
+                "public class WeakWrapBookView implements BookView {",
+                "   private volatile WeakReference<BookView> weakWrap;",
+                "   private final WeakWrapReplay<BookView> replay = new WeakWrapReplay<>(1);",
+                "   public WeakWrapBookView(BookView bookView) {",
+                "       weakWrap = new WeakReference<>(bookView);",
+                "   }",
+                objectOverriddenMethods("BookView"),
+
+                "public void showBook(final String title, final int pages) {",
+                "    BookView original = weakWrap.get();",
+                "    if(original != null) {",
+                "        original.showBook(title, pages);",
+                "        return;",
+                "    }",
+                "    replay.record(0, new WeakWrapReplay.Call<BookView>() {",
+                "        @Override",
+                "        public void replay(BookView original) {",
+                "            original.showBook(title, pages);",
+                "        }",
+                "    });",
+                "}",
+
+                "public boolean isShowing(){",
+                wrapperMethodBodyAndClose("BookView", "isShowing()", "false"),
+
+                clearWeakWrapRefMethod(),
+
+                "public void attach(BookView bookView) {",
+                "    weakWrap = new WeakReference<>(bookView);",
+                "    if(bookView != null) {",
+                "        replay.replayTo(bookView);",
+                "    }",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testFlightRecorderEvents() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.RecordedView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(flightRecorderEvents = true)",
+                "interface RecordedView {",
+                "   int measure(int width);",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapRecordedView", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapEvents;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+                "",
+                "public class WeakWrapRecordedView implements RecordedView {",
+                "   private final WeakReference<RecordedView> weakWrap;",
+                "   private boolean targetCollectedReported;",
+                "   public WeakWrapRecordedView(RecordedView recordedView) {",
+                "       weakWrap = new WeakReference<>(recordedView);",
+                "       WeakWrapEvents.created(WeakWrapRecordedView.class);",
+                "   }",
+                recordedObjectMethod("RecordedView", "int", "hashCode", "", "", "0"),
+                recordedObjectMethod("RecordedView", "boolean", "equals", "Object arg0", "arg0", "false"),
+                recordedObjectMethod("RecordedView", "String", "toString", "", "", "null"),
+                recordedObjectMethod("RecordedView", "int", "measure", "int width", "width", "0"),
+                "public void clearWeakWrapRef(){",
+                "    weakWrap.clear();",
+                "    targetCollectedReported = true;",
+                "}",
+                "private void targetGone(String method) {",
+                "    if(!targetCollectedReported) {",
+                "        targetCollectedReported = true;",
+                "        WeakWrapEvents.targetCollected(WeakWrapRecordedView.class);",
+                "    }",
+                "    WeakWrapEvents.droppedCall(WeakWrapRecordedView.class, method);",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+
+    @Test
+    public void testMemoize() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.MetricsView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "import com.stefandekanski.weakwrap.anotation.Memoize;",
+                "@WeakWrap",
+                "interface MetricsView {",
+                "   @Memoize int measure(int width);",
+                "   @Memoize(maxSize = 4) String label(String locale, boolean shortForm);",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapMetricsView", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapMemo;",
+                "import java.lang.Integer;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+                "",
+                "public class WeakWrapMetricsView implements MetricsView {",
+                "   private final WeakReference<MetricsView> weakWrap;",
+                "   private final WeakWrapMemo.IntKeyed measureMemo = new WeakWrapMemo.IntKeyed(16);",
+                "   private final WeakWrapMemo.Keyed labelMemo = new WeakWrapMemo.Keyed(4);",
+                "   public WeakWrapMetricsView(MetricsView metricsView) {",
+                "       weakWrap = new WeakReference<>(metricsView);",
+                "   }",
+                objectOverriddenMethods("MetricsView", "targetGone();"),
+
+                "public int measure(int width) {",
+                "    MetricsView original = weakWrap.get();",
+                "    if(original != null) {",
+                "        Object memoized = measureMemo.get(width);",
+                "        if(memoized != WeakWrapMemo.MISS) {",
+                "            return (Integer) memoized;",
+                "        }",
+                "        int result = original.measure(width);",
+                "        measureMemo.put(width, result);",
+                "        return result;",
+                "    }",
+                "    targetGone();",
+                "    return 0;",
+                "}",
+
+                "public String label(String locale, boolean shortForm) {",
+                "    MetricsView original = weakWrap.get();",
+                "    if(original != null) {",
+                "        Object memoKey = WeakWrapMemo.key(locale, shortForm);",
+                "        Object memoized = labelMemo.get(memoKey);",
+                "        if(memoized != WeakWrapMemo.MISS) {",
+                "            return (String) memoized;",
+                "        }",
+                "        String result = original.label(locale, shortForm);",
+                "        labelMemo.put(memoKey, result);",
+                "        return result;",
+                "    }",
+                "    targetGone();",
+                "    return null;",
+                "}",
+
+                "public void clearWeakWrapRef(){",
+                "    weakWrap.clear();",
+                "    invalidateMemoized();",
+                "}",
+
+                "private void targetGone() {",
+                "    invalidateMemoized();",
+                "}",
+
+                "public void invalidateMemoized() {",
+                "    measureMemo.clear();",
+                "    labelMemo.clear();",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testMemoizeOnVoidMethod() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.NoResultView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "import com.stefandekanski.weakwrap.anotation.Memoize;",
+                "@WeakWrap",
+                "interface NoResultView {",
+                "   @Memoize void show();",
+                "}"));
+
+        assertAbout(javaSource())
+                .that(source)
+                .processedWith(weakWrapProcessor)
+                .failsToCompile()
+                .withErrorContaining(WeakWrapWriter.MEMOIZE_VALIDATION_MSG);
+    }
+
+    @Test
+    public void testScoped() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.ScopedView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(scoped = true)",
+                "interface ScopedView {",
+                "   boolean isShowing();",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapScopedView", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapScope;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+                "",
+                "public class WeakWrapScopedView implements ScopedView {",
+                "   private final WeakReference<ScopedView> weakWrap;",
+                "   private final WeakWrapScope scope;",
+                "   private final int scopeEpoch;",
+                "   public WeakWrapScopedView(ScopedView scopedView, WeakWrapScope weakWrapScope) {",
+                "       weakWrap = new WeakReference<>(scopedView);",
+                "       scope = weakWrapScope;",
+                "       scopeEpoch = weakWrapScope.epoch();",
+                "   }",
+                "public int hashCode() {",
+                "    ScopedView original = !scope.isActive(scopeEpoch) ? null : weakWrap.get();",
+                "    if(original != null) {",
+                "      return original.hashCode();",
+                "    }",
+                "    return 0;",
+                "}",
+                "public boolean equals(Object arg0) {",
+                "    ScopedView original = !scope.isActive(scopeEpoch) ? null : weakWrap.get();",
+                "    if(original != null) {",
+                "      return original.equals(arg0);",
+                "    }",
+                "    return false;",
+                "}",
+                "public String toString() {",
+                "    ScopedView original = !scope.isActive(scopeEpoch) ? null : weakWrap.get();",
+                "    if(original != null) {",
+                "      return original.toString();",
+                "    }",
+                "    return null;",
+                "}",
+                "public boolean isShowing() {",
+                "    ScopedView original = !scope.isActive(scopeEpoch) ? null : weakWrap.get();",
+                "    if(original != null) {",
+                "      return original.isShowing();",
+                "    }",
+                "    return false;",
+                "}",
+                clearWeakWrapRefMethod(),
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testScopedReattachable() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.ScopedView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(scoped = true, reattachable = true)",
+                "interface ScopedView {",
+                "   void show();",
+                "}"));
+
+        assertAbout(javaSource())
+                .that(source)
+                .processedWith(weakWrapProcessor)
+                .failsToCompile()
+                .withErrorContaining("scoped" + WeakWrapWriter.MODE_COMBINATION_VALIDATION_MSG + "reattachable");
+    }
+
+    @Test
+    public void testDeadTargetLatch() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.LatchedView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(deadTargetLatch = true)",
+                "interface LatchedView {",
+                "   int measure(int width);",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapLatchedView", Joiner.on('\n').join(
+                "package test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+                "",
+                "public class WeakWrapLatchedView implements LatchedView {",
+                "   private final WeakReference<LatchedView> weakWrap;",
+                "   private boolean targetDead;",
+                "   public WeakWrapLatchedView(LatchedView latchedView) {",
+                "       weakWrap = new WeakReference<>(latchedView);",
+                "   }",
+                latchedMethod("int", "hashCode", "", "", "0"),
+                latchedMethod("boolean", "equals", "Object arg0", "arg0", "false"),
+                latchedMethod("String", "toString", "", "", "null"),
+                latchedMethod("int", "measure", "int width", "width", "0"),
+                clearWeakWrapRefMethod(),
+                "private void targetGone() {",
+                "    targetDead = true;",
+                "}",
+                "public boolean isTargetAlive() {",
+                "    return !targetDead && weakWrap.get() != null;",
+                "}",
+                "public boolean wraps(LatchedView candidate) {",
+                "    return weakWrap.get() == candidate;",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testRebindable() {
+        JavaFileObject source = JavaFileObjects.forSourceString("test.Callback", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap(rebindable = true)",
+                "interface Callback {",
+                "   void done();",
+                "}"));
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test.WeakWrapCallback", Joiner.on('\n').join(
+                "package test;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapPool;",
+                "import com.stefandekanski.weakwrap.runtime.WeakWrapReferences;",
+                "import java.lang.Object;",
+                "import java.lang.Override;",
+                "import java.lang.String;",
+                importWeakReference(),
+                "",
+                "public class WeakWrapCallback implements Callback, WeakWrapPool.Rebindable<Callback> {",
+                "   private volatile WeakReference<Callback> weakWrap;",
+                "   public WeakWrapCallback(Callback callback) {",
+                "       weakWrap = new WeakReference<>(callback);",
+                "   }",
+                "   public WeakWrapCallback() {",
+                "       weakWrap = WeakWrapReferences.cleared();",
+                "   }",
+                objectOverriddenMethods("Callback"),
+
+                "public void done(){",
+                wrapperMethodBodyAndClose("Callback", "done()"),
+
+                clearWeakWrapRefMethod(),
+
+                "@Override",
+                "public void rebind(Callback callback) {",
+                "    weakWrap = new WeakReference<>(callback);",
+                "}",
+
+                "@Override",
+                "public boolean release() {",
+                "    WeakReference<Callback> released = weakWrap;",
+                "    weakWrap = WeakWrapReferences.cleared();",
+                "    return released != WeakWrapReferences.<Callback>cleared();",
+                "}",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void testAnnotatedParentInterface() {
+        JavaFileObject baseSource = JavaFileObjects.forSourceString("com.test.BaseListener", Joiner.on('\n').join(
+                "package com.test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public interface BaseListener {",
+                "   void onStart();",
+                "}"
+        ));
+
+        JavaFileObject childSource = JavaFileObjects.forSourceString("test.ChildListener", Joiner.on('\n').join(
+                "package test;",
+                "import com.test.BaseListener;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public interface ChildListener extends BaseListener {",
+                "   int onProgress(int percent);",
+                "}"
+        ));
+
+        JavaFileObject expectedBase = JavaFileObjects.forSourceString("com.test.WeakWrapBaseListener", Joiner.on('\n').join(
+                "package com.test;",
+                importObjectMethodStuff(),
+                importWeakReference(),
+
+                wrapInterfaceStart("BaseListener"),
+                objectOverriddenMethods("BaseListener"),
+
+                "public void onStart(){",
+                wrapperMethodBodyAndClose("BaseListener", "onStart()"),
+
+                clearWeakWrapRefMethod(),
+                weakWrapTargetMethod("BaseListener"),
+                wrapperEnd()
+        ));
+
+        JavaFileObject expectedChild = JavaFileObjects.forSourceString("test.WeakWrapChildListener", Joiner.on('\n').join(
+                "package test;",
+                "import com.test.WeakWrapBaseListener;",
+                "",
+                "public class WeakWrapChildListener extends WeakWrapBaseListener implements ChildListener {",
+                "   public WeakWrapChildListener(ChildListener childListener) {",
+                "       super(childListener);",
+                "   }",
+                "   public int onProgress(int percent) {",
+                "       ChildListener original = (ChildListener) weakWrapTarget();",
+                "       if(original != null) {",
+                "           return original.onProgress(percent);",
+                "       }",
+                "       return 0;",
+                "   }",
+                wrapperEnd()
+        ));
+
+        assertAbout(javaSources()).that(Arrays.asList(baseSource, childSource))
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedBase, expectedChild);
+    }
+
+    @Test
+    public void testParentWrapperCompiledBefore() throws IOException {
+        JavaFileObject baseSource = JavaFileObjects.forSourceString("com.test.BaseListener", Joiner.on('\n').join(
+                "package com.test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public interface BaseListener {",
+                "   void onStart();",
+                "}"
+        ));
+        File parentOutput = Files.createTempDirectory("weakwrap-parent").toFile();
+        assertThat(compileSeparately(baseSource, parentOutput, System.getProperty("java.class.path")), is(true));
+
+        //only the compiled parent and its wrapper are on the class path, not their sources
+        JavaFileObject childSource = JavaFileObjects.forSourceString("test.ChildListener", Joiner.on('\n').join(
+                "package test;",
+                "import com.test.BaseListener;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "public interface ChildListener extends BaseListener {",
+                "   void onStop();",
+                "}"
+        ));
+        JavaFileObject expectedChild = JavaFileObjects.forSourceString("test.WeakWrapChildListener", Joiner.on('\n').join(
+                "package test;",
+                "import com.test.WeakWrapBaseListener;",
+                "",
+                "public class WeakWrapChildListener extends WeakWrapBaseListener implements ChildListener {",
+                "   public WeakWrapChildListener(ChildListener childListener) {",
+                "       super(childListener);",
+                "   }",
+                "   public void onStop() {",
+                "       ChildListener original = (ChildListener) weakWrapTarget();",
+                "       if(original != null) {",
+                "           original.onStop();",
+                "       }",
+                "   }",
+                wrapperEnd()
+        ));
+
+        File childOutput = Files.createTempDirectory("weakwrap-child").toFile();
+        assertThat(compileSeparately(childSource, childOutput, parentOutput.getPath() + File.pathSeparator + System.getProperty("java.class.path")), is(true));
+        File generatedChild = new File(childOutput, "test/WeakWrapChildListener.java");
+        assertAbout(javaSource()).that(JavaFileObjects.forResource(generatedChild.toURI().toURL()))
+                .parsesAs(expectedChild);
+    }
+
+    //compile-testing 0.8 compiles against the test class path only, this compiles against the given one
+    private static boolean compileSeparately(JavaFileObject source, File output, String classPath) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-classpath", classPath, "-d", output.getPath(), "-s", output.getPath()), null, Arrays.asList(source));
+            task.setProcessors(Arrays.asList(new WeakWrapProcessor()));
+            return task.call();
+        }
+    }
+
+    @Test
+    public void testProfileOption() throws IOException {
+        File profile = File.createTempFile("weakwrap-profile", ".json");
+        profile.deleteOnExit();
+        JavaFileObject source = JavaFileObjects.forSourceString("test.ProfiledView", Joiner.on('\n').join(
+                "package test;",
+                importWeakWrapAnnotation(),
+                "@WeakWrap",
+                "interface ProfiledView {",
+                "   void show();",
+                "}"));
+
+        assertAbout(javaSource()).that(source)
+                .withCompilerOptions("-A" + ProcessingProfile.OPTION + "=" + profile.getPath())
+                .processedWith(weakWrapProcessor)
+                .compilesWithoutError();
+
+        String json = new String(Files.readAllBytes(profile.toPath()), Charset.forName("UTF-8"));
+        assertThat(json, containsString("\"type\": \"test.ProfiledView\""));
+        //hashCode, equals, toString and show, not the constructor or clearWeakWrapRef
+        assertThat(json, containsString("\"wrappedMethods\": 4"));
+        assertThat(json, containsString("\"totals\": {"));
+    }
+
+    private static String objectOverriddenMethods(String originalName) {
+        return objectOverriddenMethods(originalName, "");
+    }
+
+    private static String objectOverriddenMethods(String originalName, String deadTargetStatement) {
+        String weakWrapGetToLocalVar = "    " + originalName + " original = weakWrap.get();";
+        return Joiner.on('\n').join(
+                "public int hashCode() {",
+                weakWrapGetToLocalVar,
+                "    if(original != null) {",
+                "      return original.hashCode();",
+                "    }",
+                deadTargetStatement,
+                "    return 0;",
+                "}",
+                "public boolean equals(Object arg0) {",
+                weakWrapGetToLocalVar,
+                "    if(original != null) {",
+                "      return original.equals(arg0);",
+                "    }",
+                deadTargetStatement,
+                "    return false;",
+                "}",
+                "public String toString() {",
+                weakWrapGetToLocalVar,
+                "    if(original != null) {",
+                "      return original.toString();",
+                "    }",
+                deadTargetStatement,
+                "    return null;",
+                "}");
+    }
+
+    private static String recordedObjectMethod(String originalName, String returnType, String name,
+                                               String params, String args, String defaultValue) {
+        return Joiner.on('\n').join(
+                "public " + returnType + " " + name + "(" + params + ") {",
+                "    " + originalName + " original = weakWrap.get();",
+                "    if(original != null) {",
+                "        Object slowCall = WeakWrapEvents.beginCall();",
+                "        try {",
+                "            return original." + name + "(" + args + ");",
+                "        } finally {",
+                "            WeakWrapEvents.endCall(slowCall, WeakWrap" + originalName + ".class, \"" + name + "\");",
+                "        }",
+                "    }",
+                "    targetGone(\"" + name + "\");",
+                "    return " + defaultValue + ";",
+                "}");
+    }
+
+    private static String latchedMethod(String returnType, String name, String params, String args, String defaultValue) {
+        return Joiner.on('\n').join(
+                "public " + returnType + " " + name + "(" + params + ") {",
+                "    LatchedView original = targetDead ? null : weakWrap.get();",
+                "    if(original != null) {",
+                "        return original." + name + "(" + args + ");",
+                "    }",
+                "    targetGone();",
+                "    return " + defaultValue + ";",
+                "}");
+    }
+
+    private static String importObjectMethodStuff() {
+        return Joiner.on('\n').join(
+                "import java.lang.Object;",
+                "import java.lang.String;");
+    }
+
+    private static String subscriberShapeSource() {
+        return Joiner.on('\n').join(
+                "interface Subscription {",
+                "   void request(long n);",
+                "   void cancel();",
+                "}",
+                "interface Subscriber<T> {",
+                "   void onSubscribe(Subscription subscription);",
+                "   void onNext(T item);",
+                "   void onError(Throwable throwable);",
+                "   void onComplete();",
+                "}");
+    }
+
+    private static String importWeakWrapAnnotation() {
+        return "import com.stefandekanski.weakwrap.anotation.WeakWrap;";
+    }
+
+    private static String importWeakReference() {
+        return "import java.lang.ref.WeakReference;";
+    }
+
+    private static String wrapInterfaceStart(String original) {
+        return wrapperStart(original, true);
+    }
+
+    private static String wrapInterfaceStart(String prefix, String original) {
+        return wrapperStart(prefix, original, true);
+    }
+
+    private static String wrapClassStart(String original) {
+        return wrapperStart(original, false);
+    }
+
+    private static String wrapClassWithInterfaces(String original, String... interfaces) {
+        return wrapperStart(original, false, interfaces);
+    }
+
+    private static final String DEFAULT_PREFIX = getDefaultWeakWrapPrefix();
+
+    private static String getDefaultWeakWrapPrefix() {
+        try {
+            Method method = WeakWrap.class.getMethod("classNamePrefix");
+            return (String) method.getDefaultValue();
+        } catch (NoSuchMethodException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("method name was changed without updating the name here!");
+        }
+    }
+
+    private static String wrapperStart(String original, boolean isInterface, String... interfaces) {
+        return wrapperStart(DEFAULT_PREFIX, original, isInterface, interfaces);
+    }
+
+    private static String wrapperStart(String prefix, String original, boolean isInterface, String... interfaces) {
+        String extraInterfaces = interfaces.length > 0 ? "implements " + Joiner.on(",").join(interfaces) : "";
+        String extendOrImpl = isInterface ? "implements" : "extends";
+        String classVarName = firstSmallLetterWithoutDots(original);
+        String wrapClassName = prefix + original.replaceAll("\\.", "");
+        return Joiner.on('\n').join(
+                "",
+                "public class " + wrapClassName + " " + extendOrImpl + " " + original + " " + extraInterfaces + "{",
+                "   private final WeakReference<" + original + "> weakWrap;",
+                "       public " + wrapClassName + "(" + original + " " + classVarName + ") {",
+                "           weakWrap = new WeakReference<>(" + classVarName + ");",
+                "   }",
+                "");
+    }
+
+    //plain interface wrappers can be extended by the wrappers of annotated subinterfaces
+    private static String weakWrapTargetMethod(String original) {
+        return Joiner.on('\n').join(
+                "protected final " + original + " weakWrapTarget() {",
+                "    return weakWrap.get();",
+                "}");
+    }
+
+    private static String wrapperEnd() {
+        return "}";
+    }
+
+    private static String firstSmallLetterWithoutDots(String string) {
+        StringBuilder convertedString = new StringBuilder(string.length());
+        convertedString.append(Character.toLowerCase(string.charAt(0)));
+        for (int i = 1; i < string.length(); i++) {
+            char ch = string.charAt(i);
+            if (ch == '.') continue;
+            convertedString.append(ch);
+        }
+        return convertedString.toString();
+    }
+
+    private static String wrapperMethodBodyAndClose(String originalClass, String methodCall) {
+        return wrapperMethodBodyAndClose(originalClass, methodCall, "");
+    }
+
+    private static String wrapperMethodBodyAndClose(String originalClass, String methodCall, String returnVal) {
+        String returnText = "";
+        String returnStatement = "";
+        if (returnVal.length() > 0) {
+            returnText = "return ";
+            returnStatement = "return " + returnVal + ";\n";
+        }
+        String method = Joiner.on('\n').join(
+                "    " + originalClass + " original = weakWrap.get();",
+                "    if(original != null){",
+                "        " + returnText + "original." + methodCall + ";",
+                "    }"
+        );
+        if (returnVal.length() > 0) {
+            method += returnStatement;
+        }
+        return method + "\n}";
+    }
+
+    private static String clearWeakWrapRefMethod() {
+        return Joiner.on('\n').join(
+                "public void clearWeakWrapRef(){",
+                "    weakWrap.clear();",
+                "}"
+        );
+    }
+}
@@ -0,0 +1,44 @@
+package com.stefandekanski.weakwrap.testing;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one object until the collector clears it. Create it with {@link WeakWrapTesting#probe(Object)}, drop every
+ * strong reference to the object and call {@link #awaitCollected(long, TimeUnit)}.
+ */
+public final class GcProbe {
+    //short enough to retry a collection quickly, the queue returns as soon as the reference is enqueued
+    private static final long GC_RETRY_MILLIS = 5;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final WeakReference<Object> reference;
+    private final String description;
+    private boolean collected;
+
+    GcProbe(Object target) {
+        this.reference = new WeakReference<>(target, queue);
+        this.description = target.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(target));
+    }
+
+    public boolean isCollected() {
+        return collected || reference.get() == null;
+    }
+
+    /**
+     * Requests collections until the object is collected, throws {@link AssertionError} when it is still
+     * reachable after {@code timeout}.
+     */
+    public void awaitCollected(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!collected) {
+            System.gc();
+            if (queue.remove(GC_RETRY_MILLIS) != null) {
+                collected = true;
+            } else if (System.nanoTime() > deadline) {
+                throw new AssertionError(description + " was not collected within " + timeout + " " + unit.name().toLowerCase());
+            }
+        }
+    }
+}
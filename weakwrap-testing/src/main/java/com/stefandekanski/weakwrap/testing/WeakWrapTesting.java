@@ -0,0 +1,191 @@
+package com.stefandekanski.weakwrap.testing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test helpers for code using wrappers generated by {@code @WeakWrap}.
+ * <ul>
+ * <li>{@link #probe(Object)} waits for a real collection through a {@code ReferenceQueue}, without fixed sleeps.</li>
+ * <li>{@link #assertInert(Object, Class)} checks that a wrapper only returns defaults.</li>
+ * <li>{@link #exerciseDeadTarget(Class, WrapperFactory)} covers the dead target branch of every wrapped method without
+ * any collection, by clearing the wrapper through {@code clearWeakWrapRef()}.</li>
+ * </ul>
+ */
+public final class WeakWrapTesting {
+    static final String CLEAR_METHOD_NAME = "clearWeakWrapRef";
+
+    /**
+     * Creates the wrapper under test around the given target, e.g. {@code new WeakWrapBookView(target)}.
+     */
+    public interface WrapperFactory<T> {
+        T wrap(T target);
+    }
+
+    private WeakWrapTesting() {
+    }
+
+    public static GcProbe probe(Object target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Nothing to probe");
+        }
+        return new GcProbe(target);
+    }
+
+    /**
+     * Calls every method of {@code wrappedType} on {@code wrapper} with default arguments and fails unless each one
+     * returns the default value of its type ({@code null}, {@code 0} or {@code false}).
+     */
+    public static <T> void assertInert(T wrapper, Class<T> wrappedType) {
+        for (Method method : wrappedMethods(wrappedType)) {
+            Object result = invoke(wrapper, method);
+            if (!isDefaultValue(method.getReturnType(), result)) {
+                throw new AssertionError(method.getName() + " returned " + result + " through an inert wrapper");
+            }
+        }
+    }
+
+    /**
+     * Wraps a recording target of the interface {@code wrappedType}, checks that every method reaches it, clears the
+     * wrapper through {@code clearWeakWrapRef()} and checks that no method reaches it anymore and each returns its
+     * default. Covers what a wrapper does once its target is collected, without waiting for a collection.
+     */
+    public static <T> void exerciseDeadTarget(Class<T> wrappedType, WrapperFactory<T> factory) {
+        if (!wrappedType.isInterface()) {
+            throw new IllegalArgumentException(wrappedType.getName() + " is not an interface, the recording target is a proxy");
+        }
+        RecordingHandler recorder = new RecordingHandler();
+        T target = wrappedType.cast(Proxy.newProxyInstance(wrappedType.getClassLoader(), new Class<?>[]{wrappedType}, recorder));
+        T wrapper = factory.wrap(target);
+
+        List<Method> methods = wrappedMethods(wrappedType);
+        for (Method method : methods) {
+            invoke(wrapper, method);
+            //overloads share a name, only the parameter types tell a misrouted call apart
+            if (!recorder.calls.contains(signature(method))) {
+                throw new AssertionError(signature(method) + " did not reach the live target");
+            }
+        }
+
+        recorder.calls.clear();
+        clear(wrapper);
+        assertInert(wrapper, wrappedType);
+        if (!recorder.calls.isEmpty()) {
+            throw new AssertionError(recorder.calls + " reached the target after " + CLEAR_METHOD_NAME + "()");
+        }
+    }
+
+    private static void clear(Object wrapper) {
+        try {
+            wrapper.getClass().getMethod(CLEAR_METHOD_NAME).invoke(wrapper);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(wrapper.getClass().getName() + " is not a generated wrapper", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError(CLEAR_METHOD_NAME + "() failed: " + e.getCause());
+        }
+    }
+
+    private static List<Method> wrappedMethods(Class<?> wrappedType) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : wrappedType.getMethods()) {
+            if (method.getDeclaringClass() != Object.class) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    static String signature(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(", ");
+            }
+            signature.append(parameterTypes[i].getSimpleName());
+        }
+        return signature.append(')').toString();
+    }
+
+    private static Object invoke(Object wrapper, Method method) {
+        try {
+            return method.invoke(wrapper, defaultArguments(method.getParameterTypes()));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError(method.getName() + " threw " + e.getCause());
+        }
+    }
+
+    private static Object[] defaultArguments(Class<?>[] parameterTypes) {
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            arguments[i] = defaultValue(parameterTypes[i]);
+        }
+        return arguments;
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+    private static boolean isDefaultValue(Class<?> type, Object value) {
+        Object defaultValue = defaultValue(type);
+        return defaultValue == null ? value == null : defaultValue.equals(value);
+    }
+
+    //answers every call with the default value, so the wrapper under test sees a well behaved target
+    private static final class RecordingHandler implements InvocationHandler {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            calls.add(signature(method));
+            return defaultValue(method.getReturnType());
+        }
+
+        private static Object objectMethod(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "recording target";
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.stefandekanski.weakwrap.testing;
+
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+
+@WeakWrap
+public interface Counter {
+    void add(int amount);
+
+    int count();
+
+    String name(String prefix, long id);
+}
@@ -0,0 +1,14 @@
+package com.stefandekanski.weakwrap.testing;
+
+import com.stefandekanski.weakwrap.anotation.WeakWrap;
+
+@WeakWrap(requestBatchSize = 4)
+public interface ItemSubscriber {
+    void onSubscribe(ItemSubscription subscription);
+
+    void onNext(String item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+}
@@ -0,0 +1,7 @@
+package com.stefandekanski.weakwrap.testing;
+
+public interface ItemSubscription {
+    void request(long n);
+
+    void cancel();
+}
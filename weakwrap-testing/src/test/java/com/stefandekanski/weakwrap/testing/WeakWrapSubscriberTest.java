@@ -0,0 +1,126 @@
+package com.stefandekanski.weakwrap.testing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapSubscriberTest {
+
+    @Test
+    public void testCancelWaitsForReplenishingRequest() throws InterruptedException {
+        final BlockingSubscription subscription = new BlockingSubscription();
+        final ItemSubscriber target = new NoopSubscriber();
+        final WeakWrapItemSubscriber wrapper = new WeakWrapItemSubscriber(target);
+
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                wrapper.onSubscribe(subscription);
+                for (int i = 0; i < 3; i++) {
+                    wrapper.onNext("item" + i);
+                }
+            }
+        });
+        publisher.start();
+        assertThat(subscription.replenishing.await(10, TimeUnit.SECONDS), is(true));
+
+        //clearWeakWrapRef cancels through the same monitor as the reaper once the target is collected
+        Thread reaper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                wrapper.clearWeakWrapRef();
+            }
+        });
+        reaper.start();
+        awaitBlocked(reaper);
+        assertThat(subscription.events(), is(Arrays.asList("request 4", "request 3")));
+
+        subscription.release.countDown();
+        publisher.join(10000);
+        reaper.join(10000);
+        assertThat(subscription.events(), is(Arrays.asList("request 4", "request 3", "cancel")));
+        assertThat(subscription.overlapped, is(false));
+
+        //a late subscription is cancelled right away, nothing is requested on it
+        BlockingSubscription late = new BlockingSubscription();
+        wrapper.onSubscribe(late);
+        assertThat(late.events(), is(Collections.singletonList("cancel")));
+        assertThat(target != null, is(true));
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.BLOCKED) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("cancel did not wait for the request in flight");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    //the replenishing request blocks until released, cancel records if it ever runs during a request
+    static class BlockingSubscription implements ItemSubscription {
+        final CountDownLatch replenishing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> events = new ArrayList<>();
+        private volatile boolean requesting;
+        volatile boolean overlapped;
+
+        @Override
+        public void request(long n) {
+            requesting = true;
+            record("request " + n);
+            if (n != 4) {
+                replenishing.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            requesting = false;
+        }
+
+        @Override
+        public void cancel() {
+            if (requesting) {
+                overlapped = true;
+            }
+            record("cancel");
+        }
+
+        private synchronized void record(String event) {
+            events.add(event);
+        }
+
+        synchronized List<String> events() {
+            return new ArrayList<>(events);
+        }
+    }
+
+    static class NoopSubscriber implements ItemSubscriber {
+        @Override
+        public void onSubscribe(ItemSubscription subscription) {
+        }
+
+        @Override
+        public void onNext(String item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.stefandekanski.weakwrap.testing;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeakWrapTestingTest {
+
+    @Test
+    public void testProbeSeesCollection() throws InterruptedException {
+        GcProbe probe = WeakWrapTesting.probe(new Object());
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        assertThat(probe.isCollected(), is(true));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testProbeFailsWhileReachable() throws InterruptedException {
+        Object target = new Object();
+        GcProbe probe = WeakWrapTesting.probe(target);
+        try {
+            probe.awaitCollected(50, TimeUnit.MILLISECONDS);
+        } finally {
+            assertThat(target != null, is(true));
+        }
+    }
+
+    @Test
+    public void testWrapperBecomesInertOnceTargetIsCollected() throws InterruptedException {
+        CountingTarget target = new CountingTarget();
+        Counter wrapper = new WeakWrapCounter(target);
+        wrapper.add(3);
+        assertThat(wrapper.count(), is(3));
+
+        GcProbe probe = WeakWrapTesting.probe(target);
+        target = null;
+        probe.awaitCollected(10, TimeUnit.SECONDS);
+        WeakWrapTesting.assertInert(wrapper, Counter.class);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testLiveWrapperIsNotInert() {
+        CountingTarget target = new CountingTarget();
+        target.add(1);
+        WeakWrapTesting.assertInert(new WeakWrapCounter(target), Counter.class);
+    }
+
+    @Test
+    public void testExerciseDeadTarget() {
+        WeakWrapTesting.exerciseDeadTarget(Counter.class, new WeakWrapTesting.WrapperFactory<Counter>() {
+            @Override
+            public Counter wrap(Counter target) {
+                return new WeakWrapCounter(target);
+            }
+        });
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testExerciseDeadTargetCatchesLeakingWrapper() {
+        WeakWrapTesting.exerciseDeadTarget(Counter.class, new WeakWrapTesting.WrapperFactory<Counter>() {
+            @Override
+            public Counter wrap(Counter target) {
+                return new LeakingCounter(target);
+            }
+        });
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testExerciseDeadTargetCatchesMisroutedOverload() {
+        WeakWrapTesting.exerciseDeadTarget(Scale.class, new WeakWrapTesting.WrapperFactory<Scale>() {
+            @Override
+            public Scale wrap(Scale target) {
+                return new MisroutingScale(target);
+            }
+        });
+    }
+
+    public interface Scale {
+        void set(int value);
+
+        void set(long value);
+    }
+
+    //delegates both overloads to set(int), only visible when calls are recorded with their parameter types
+    public static class MisroutingScale implements Scale {
+        private Scale target;
+
+        MisroutingScale(Scale target) {
+            this.target = target;
+        }
+
+        public void clearWeakWrapRef() {
+            target = null;
+        }
+
+        @Override
+        public void set(int value) {
+            if (target != null) {
+                target.set(value);
+            }
+        }
+
+        @Override
+        public void set(long value) {
+            if (target != null) {
+                target.set((int) value);
+            }
+        }
+    }
+
+    static class CountingTarget implements Counter {
+        int count;
+
+        @Override
+        public void add(int amount) {
+            count += amount;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public String name(String prefix, long id) {
+            return prefix + id;
+        }
+    }
+
+    //keeps a strong reference and ignores clearWeakWrapRef(), what the harness has to catch
+    public static class LeakingCounter implements Counter {
+        private final Counter target;
+
+        LeakingCounter(Counter target) {
+            this.target = target;
+        }
+
+        public void clearWeakWrapRef() {
+        }
+
+        @Override
+        public void add(int amount) {
+            target.add(amount);
+        }
+
+        @Override
+        public int count() {
+            return target.count();
+        }
+
+        @Override
+        public String name(String prefix, long id) {
+            return target.name(prefix, id);
+        }
+    }
+}